@@ -16,6 +16,7 @@ plugins {
     id("org.jooq.jooq-codegen-gradle") version "3.19.10"
     id("org.graalvm.buildtools.native") version "0.10.2"
     id("io.freefair.lombok") version "8.6"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "pl.piotrmacha.lurker"
@@ -48,7 +49,8 @@ dependencies {
     implementation("org.jooq:jooq-codegen:3.19.10")
     implementation("org.jsoup:jsoup:1.17.2")
     implementation("com.google.guava:guava:33.2.1-jre")
-    implementation("com.github.rholder:guava-retrying:2.0.0")
+    implementation("io.micrometer:micrometer-core")
+    implementation("io.micrometer:micrometer-registry-prometheus")
     jooqCodegen("org.postgresql:postgresql")
     runtimeOnly("org.postgresql:postgresql")
     testImplementation("org.junit.jupiter:junit-jupiter-api:5.8.0")
@@ -78,6 +80,12 @@ jooq {
             database {
                 name = "org.jooq.meta.postgres.PostgresDatabase"
                 inputSchema = "public"
+                forcedTypes {
+                    forcedType {
+                        name = "OTHER"
+                        includeTypes = "tsvector"
+                    }
+                }
             }
             target {
                 packageName = "pl.piotrmacha.lurker.jooq"
@@ -89,6 +97,13 @@ jooq {
 
 tasks.getByName("jooqCodegen").dependsOn("flywayMigrate")
 
+jmh {
+    jmhVersion = "1.37"
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/results-${project.version}.json")
+    (findProperty("jmhIncludes") as String?)?.let { includes = listOf(it) }
+}
+
 graalvmNative {
     useArgFile = true
 }
\ No newline at end of file
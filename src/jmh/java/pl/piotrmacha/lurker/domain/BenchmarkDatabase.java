@@ -0,0 +1,197 @@
+package pl.piotrmacha.lurker.domain;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockDataProvider;
+import org.jooq.tools.jdbc.MockExecuteContext;
+import org.jooq.tools.jdbc.MockResult;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Database access for benchmarks.
+ * <p>
+ * {@link #stub()} answers every query in memory, so benchmarks of the processors measure parsing, query building and
+ * record mapping without the network round trips. {@link #local()} connects to the Postgres configured by the same
+ * {@code POSTGRES_*} variables as the application (see {@code example.env}), which has to be migrated beforehand.
+ */
+final class BenchmarkDatabase {
+    private BenchmarkDatabase() {
+    }
+
+    static DSLContext stub() {
+        return install(DSL.using(new MockConnection(new StubDataProvider()), SQLDialect.POSTGRES));
+    }
+
+    static Local local() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:postgresql://%s:%s/%s".formatted(
+                variable("POSTGRES_HOST", "localhost"),
+                variable("POSTGRES_PORT", "5432"),
+                variable("POSTGRES_DB", "themouders")));
+        config.setUsername(variable("POSTGRES_USER", "mouder"));
+        config.setPassword(variable("POSTGRES_PASSWORD", "reduom"));
+        config.setMaximumPoolSize(4);
+        HikariDataSource dataSource = new HikariDataSource(config);
+        return new Local(dataSource, install(DSL.using(dataSource, SQLDialect.POSTGRES)));
+    }
+
+    /**
+     * Creates the DAOs the way Spring does, which registers them as the static {@code dao()} of each entity.
+     */
+    static DSLContext install(DSLContext context) {
+        Account.AccountDao accountDao = new Account.AccountDao(context);
+        Asset.AssetDao assetDao = new Asset.AssetDao(context);
+        Topic.TopicDao topicDao = new Topic.TopicDao(context);
+        new Board.BoardDao(context);
+        new Post.PostDao(context, topicDao, accountDao, assetDao);
+        new PageCache.PageCacheDao(context);
+        new DownloadQueue.Task.TaskDao(context);
+        new DownloadQueue.TaskDone.TaskDoneDao(context);
+        new DownloadQueue.TaskFailure.TaskFailureDao(context);
+        new DownloadQueue.TaskScheduled.TaskScheduledDao(context);
+        new Worker.WorkerDao(context);
+        return context;
+    }
+
+    private static String variable(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? value : System.getProperty(name, defaultValue);
+    }
+
+    record Local(HikariDataSource dataSource, DSLContext context) implements AutoCloseable {
+        @Override
+        public void close() {
+            dataSource.close();
+        }
+    }
+
+    /**
+     * Returns one row for every query that returns rows. Columns are taken from the select list or the
+     * {@code returning} clause, values are picked by the column name.
+     */
+    private static class StubDataProvider implements MockDataProvider {
+        private final DSLContext create = DSL.using(SQLDialect.POSTGRES);
+
+        @Override
+        public MockResult[] execute(MockExecuteContext ctx) {
+            List<String> columns = columns(ctx.sql());
+            if (columns.isEmpty()) {
+                return new MockResult[]{new MockResult(1)};
+            }
+
+            List<Field<?>> fields = new ArrayList<>();
+            List<Object> values = new ArrayList<>();
+            for (String column : columns) {
+                Object value = value(column, ctx.bindings());
+                Class<?> type = value == null ? Object.class : value.getClass();
+                fields.add(DSL.field(DSL.name(column), type));
+                values.add(value);
+            }
+            Result<Record> result = create.newResult(fields);
+            Record record = create.newRecord(fields.toArray(Field[]::new));
+            record.fromArray(values.toArray());
+            result.add(record);
+            return new MockResult[]{new MockResult(1, result)};
+        }
+
+        private static List<String> columns(String sql) {
+            String lower = sql.toLowerCase(Locale.ROOT);
+            int start;
+            int end;
+            int returning = lower.lastIndexOf(" returning ");
+            if (returning >= 0) {
+                start = returning + " returning ".length();
+                end = sql.length();
+            } else if (lower.startsWith("select ")) {
+                start = "select ".length();
+                end = topLevelIndexOf(lower, " from ", start);
+                end = end < 0 ? sql.length() : end;
+            } else {
+                return List.of();
+            }
+
+            List<String> columns = new ArrayList<>();
+            int depth = 0;
+            int itemStart = start;
+            for (int i = start; i <= end; i++) {
+                char c = i < end ? sql.charAt(i) : ',';
+                if (c == '(') {
+                    depth++;
+                } else if (c == ')') {
+                    depth--;
+                } else if (c == ',' && depth == 0) {
+                    columns.add(name(sql.substring(itemStart, i).trim()));
+                    itemStart = i + 1;
+                }
+            }
+            return columns;
+        }
+
+        private static int topLevelIndexOf(String sql, String token, int from) {
+            int depth = 0;
+            for (int i = from; i < sql.length(); i++) {
+                char c = sql.charAt(i);
+                if (c == '(') {
+                    depth++;
+                } else if (c == ')') {
+                    depth--;
+                } else if (depth == 0 && sql.startsWith(token, i)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static String name(String item) {
+            int alias = item.toLowerCase(Locale.ROOT).lastIndexOf(" as ");
+            String name = alias >= 0 ? item.substring(alias + 4) : item;
+            if (name.indexOf('(') < 0) {
+                name = name.substring(name.lastIndexOf('.') + 1);
+            }
+            return name.replace("\"", "");
+        }
+
+        private static Object value(String column, Object[] bindings) {
+            if (column.startsWith("count")) {
+                return 0;
+            }
+            if (column.equals("id") || column.endsWith("_id") || column.equals("size") || column.startsWith("nextval")) {
+                return 1L;
+            }
+            if (column.equals("indexed_until") || column.equals("reply_count") || column.equals("last_page_offset") || column.equals("last_post_oid")) {
+                // Crawl state of a board or topic that was never indexed
+                return null;
+            }
+            if (column.equals("not_before")) {
+                // Task that never failed
+                return null;
+            }
+            if (column.endsWith("_at") || column.equals("last_update")) {
+                return OffsetDateTime.now();
+            }
+            if (column.equals("type")) {
+                return "TOPIC";
+            }
+            if (column.equals("oid") || column.equals("url")) {
+                for (Object binding : bindings) {
+                    if (binding instanceof String string) {
+                        return string;
+                    }
+                }
+                return column.equals("url") ? "https://themodders.org/index.php?topic=1.0" : "1";
+            }
+            return column;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package pl.piotrmacha.lurker.domain;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.*;
+import pl.piotrmacha.lurker.jooq.Tables;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DownloadQueue} enqueue and poll against a local Postgres, see {@link BenchmarkDatabase#local()}. Migrations
+ * are applied on setup. The {@code download_queue} has to be empty, since polling takes any queued task. Every
+ * invocation works on {@code batchSize} tasks under the {@code https://jmh.invalid/} prefix, which are removed again
+ * on teardown.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = 1)
+@Measurement(iterations = 10, batchSize = 1)
+@Fork(1)
+public class DownloadQueueBenchmark {
+    private static final String URL_PREFIX = "https://jmh.invalid/";
+
+    @Param({"1000"})
+    private int batchSize;
+
+    private BenchmarkDatabase.Local database;
+    private DownloadQueue queue;
+    private PageInfo.Uri[] urls;
+    private int round;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        database = BenchmarkDatabase.local();
+        Flyway.configure().dataSource(database.dataSource()).load().migrate();
+        cleanup();
+        if (DownloadQueue.Task.dao().countAll() > 0) {
+            throw new IllegalStateException("Polling would take over queued tasks, use a database with an empty download_queue");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        cleanup();
+        database.close();
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        round++;
+        queue = new DownloadQueue(new EnqueuedUrlFilter(), new WorkerRegistry(Duration.ofMinutes(10)));
+        urls = new PageInfo.Uri[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            urls[i] = new PageInfo.Uri(URI.create(URL_PREFIX + "index.php?topic=" + round + "." + i));
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() {
+        cleanup();
+    }
+
+    @Benchmark
+    public void enqueueNew() {
+        for (PageInfo.Uri url : urls) {
+            queue.enqueue(DownloadQueue.TaskType.ASSET, url, null);
+        }
+    }
+
+    @Benchmark
+    public void enqueueDuplicate() {
+        for (PageInfo.Uri url : urls) {
+            queue.enqueue(DownloadQueue.TaskType.ASSET, url, null);
+        }
+        queue.resetFilter();
+        for (PageInfo.Uri url : urls) {
+            queue.enqueue(DownloadQueue.TaskType.ASSET, url, null);
+        }
+    }
+
+    @Benchmark
+    public int enqueuePollDone() {
+        for (PageInfo.Uri url : urls) {
+            queue.enqueue(DownloadQueue.TaskType.ASSET, url, null);
+        }
+        int polled = 0;
+        Optional<DownloadQueue.Task> task;
+        while ((task = queue.poll()).isPresent()) {
+            task.get().done();
+            queue.finished(task.get());
+            polled++;
+        }
+        return polled;
+    }
+
+    private void cleanup() {
+        database.context().deleteFrom(Tables.DOWNLOAD_QUEUE)
+                .where(Tables.DOWNLOAD_QUEUE.URL.startsWith(URL_PREFIX))
+                .execute();
+        database.context().deleteFrom(Tables.DOWNLOAD_QUEUE_DONE)
+                .where(Tables.DOWNLOAD_QUEUE_DONE.URL.startsWith(URL_PREFIX))
+                .execute();
+    }
+}
@@ -0,0 +1,100 @@
+package pl.piotrmacha.lurker.domain;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * URL normalization done for every link on board and topic pages and for every enqueued task, compared with the
+ * regex based implementation in {@link LegacyPageInfo}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageInfoBenchmark {
+    private static final List<String> BOARD_URLS = List.of(
+            "https://themodders.org/index.php?board=12.0",
+            "https://themodders.org/index.php?board=7.1200",
+            "https://themodders.org/index.php?PHPSESSID=4f1d2c3b4a5e6f708192a3b4c5d6e7f8&board=31.40",
+            "https://themodders.org/index.php?board=5"
+    );
+    private static final List<String> TOPIC_URLS = List.of(
+            "https://themodders.org/index.php?topic=10234.0",
+            "https://themodders.org/index.php?topic=10234.msg512345#msg512345",
+            "https://themodders.org/index.php?topic=998.40;topicseen",
+            "https://themodders.org/index.php?PHPSESSID=4f1d2c3b4a5e6f708192a3b4c5d6e7f8&topic=1.20"
+    );
+
+    private URI[] boards;
+    private URI[] topics;
+
+    @Setup
+    public void setup() {
+        boards = BOARD_URLS.stream().map(URI::create).toArray(URI[]::new);
+        topics = TOPIC_URLS.stream().map(URI::create).toArray(URI[]::new);
+    }
+
+    @Benchmark
+    public void enqueueBoard(Blackhole blackhole) {
+        for (URI uri : boards) {
+            blackhole.consume(new PageInfo.Uri(uri).asBoard().normalizeOffset().url());
+        }
+    }
+
+    @Benchmark
+    public void enqueueBoardLegacy(Blackhole blackhole) {
+        for (URI uri : boards) {
+            blackhole.consume(new LegacyPageInfo.Uri(uri).asBoard().normalizeOffset().uri().toString());
+        }
+    }
+
+    @Benchmark
+    public void enqueueTopic(Blackhole blackhole) {
+        for (URI uri : topics) {
+            blackhole.consume(new PageInfo.Uri(uri).asTopic().normalizeOffset().url());
+        }
+    }
+
+    @Benchmark
+    public void enqueueTopicLegacy(Blackhole blackhole) {
+        for (URI uri : topics) {
+            blackhole.consume(new LegacyPageInfo.Uri(uri).asTopic().normalizeOffset().uri().toString());
+        }
+    }
+
+    @Benchmark
+    public void normalizeTopic(Blackhole blackhole) {
+        for (URI uri : topics) {
+            blackhole.consume(new PageInfo.Uri.Topic(uri).normalize());
+        }
+    }
+
+    @Benchmark
+    public void normalizeTopicLegacy(Blackhole blackhole) {
+        for (URI uri : topics) {
+            blackhole.consume(new LegacyPageInfo.Uri.Topic(uri).normalize());
+        }
+    }
+
+    @Benchmark
+    public void schedulePages(Blackhole blackhole) {
+        PageInfo.Uri.Topic topic = new PageInfo.Uri.Topic(topics[0]).normalizeOffset();
+        for (int offset = 20; offset <= 200; offset += 20) {
+            blackhole.consume(topic.withOffset(offset).url());
+        }
+    }
+
+    @Benchmark
+    public void schedulePagesLegacy(Blackhole blackhole) {
+        LegacyPageInfo.Uri.Topic topic = new LegacyPageInfo.Uri.Topic(topics[0]).normalizeOffset();
+        for (int offset = 20; offset <= 200; offset += 20) {
+            blackhole.consume(topic.withOffset(offset).asPageUri().uri().toString());
+        }
+    }
+}
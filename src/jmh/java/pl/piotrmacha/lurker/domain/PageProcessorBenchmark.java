@@ -0,0 +1,107 @@
+package pl.piotrmacha.lurker.domain;
+
+import org.jooq.DSLContext;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.*;
+import pl.piotrmacha.lurker.domain.processor.BoardPageProcessor;
+import pl.piotrmacha.lurker.domain.processor.IndexPageProcessor;
+import pl.piotrmacha.lurker.domain.processor.NewPostsPageProcessor;
+import pl.piotrmacha.lurker.domain.processor.TopicPageProcessor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saved SMF pages parsed and processed by each {@link PageProcessor}, with the database replaced by
+ * {@link BenchmarkDatabase#stub()}. The {@code parse*} benchmarks measure Jsoup alone, the {@code process*} ones
+ * parse the page and run the processor on it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageProcessorBenchmark {
+    private static final String INDEX_URL = "https://themodders.org/index.php";
+    private static final String BOARD_URL = "https://themodders.org/index.php?board=12.0";
+    private static final String TOPIC_URL = "https://themodders.org/index.php?topic=30000.0";
+    private static final String RECENT_URL = "https://themodders.org/index.php?action=recent;start=0";
+
+    private String indexHtml;
+    private String boardHtml;
+    private String topicHtml;
+    private String recentHtml;
+    private AbstractPageProcessor indexProcessor;
+    private AbstractPageProcessor boardProcessor;
+    private AbstractPageProcessor topicProcessor;
+    private AbstractPageProcessor newPostsProcessor;
+
+    @Setup
+    public void setup() {
+        indexHtml = fixture("index.html");
+        boardHtml = fixture("board.html");
+        topicHtml = fixture("topic.html");
+        recentHtml = fixture("recent.html");
+
+        DSLContext context = BenchmarkDatabase.stub();
+        WorkerRegistry workers = new WorkerRegistry(Duration.ofMinutes(10));
+        DownloadQueue queue = new DownloadQueue(new EnqueuedUrlFilter(), workers);
+        DownloadService service = new DownloadService(queue, context, null, new FullTextIndexer(context), workers, new QueueScheduler(queue));
+        indexProcessor = new IndexPageProcessor(service);
+        boardProcessor = new BoardPageProcessor(service);
+        topicProcessor = new TopicPageProcessor(service);
+        newPostsProcessor = new NewPostsPageProcessor(service);
+    }
+
+    @Benchmark
+    public Document parseBoard() {
+        return Jsoup.parse(boardHtml, BOARD_URL);
+    }
+
+    @Benchmark
+    public Document parseTopic() {
+        return Jsoup.parse(topicHtml, TOPIC_URL);
+    }
+
+    @Benchmark
+    public void processIndex() {
+        process(indexProcessor, INDEX_URL, indexHtml);
+    }
+
+    @Benchmark
+    public void processBoard() {
+        process(boardProcessor, BOARD_URL, boardHtml);
+    }
+
+    @Benchmark
+    public void processTopic() {
+        process(topicProcessor, TOPIC_URL, topicHtml);
+    }
+
+    @Benchmark
+    public void processNewPosts() {
+        process(newPostsProcessor, RECENT_URL, recentHtml);
+    }
+
+    private static void process(AbstractPageProcessor processor, String url, String html) {
+        processor.process(new PageInfo.Uri(URI.create(url)), Jsoup.parse(html, url));
+    }
+
+    private static String fixture(String name) {
+        try (InputStream stream = PageProcessorBenchmark.class.getResourceAsStream("/fixtures/" + name)) {
+            if (stream == null) {
+                throw new IllegalStateException("Missing fixture: " + name);
+            }
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package pl.piotrmacha.lurker.domain;
+
+import org.openjdk.jmh.annotations.*;
+import pl.piotrmacha.lurker.jooq.Tables;
+import pl.piotrmacha.lurker.jooq.tables.records.PostRecord;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping between entities and jOOQ records in {@link AbstractDao}: {@code map*} runs the DAO
+ * {@link AbstractDao.RecordMapper}, {@code into*} the reflective record to entity mapping used by every fetch, and
+ * {@code create*} a whole insert with {@code returning} against {@link BenchmarkDatabase#stub()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordMapperBenchmark {
+    private Post post;
+    private Topic topic;
+    private DownloadQueue.Task task;
+    private PostRecord postRecord;
+
+    @Setup
+    public void setup() {
+        BenchmarkDatabase.stub();
+        Instant now = Instant.now();
+        post = Post.of(1L, "512345", "https://themodders.org/index.php?topic=30000.msg512345", 42L, 7L,
+                "<div class=\"inner\">" + "Lorem ipsum dolor sit amet. ".repeat(40) + "</div>", now, now);
+        topic = Topic.of(7L, "30000", "https://themodders.org/index.php?topic=30000.0", "Benchmark topic", 42L, 12L, now, now);
+        task = DownloadQueue.Task.of(1L, DownloadQueue.TaskType.TOPIC, "https://themodders.org/index.php?topic=30000.0", 7L, null, now);
+        postRecord = Tables.POST.newRecord();
+        postRecord.setId(post.id());
+        postRecord.setOid(post.oid());
+        postRecord.setUrl(post.url());
+        postRecord.setAuthorId(post.authorId());
+        postRecord.setTopicId(post.topicId());
+        postRecord.setContent(post.content());
+        postRecord.setCreatedAt(OffsetDateTime.now());
+        postRecord.setLastUpdate(OffsetDateTime.now());
+    }
+
+    @Benchmark
+    public Object mapPost() {
+        return Post.dao().mapper().apply(new AbstractDao.RecordMapper<>(), post);
+    }
+
+    @Benchmark
+    public Object mapTopic() {
+        return Topic.dao().mapper().apply(new AbstractDao.RecordMapper<>(), topic);
+    }
+
+    @Benchmark
+    public Object mapTask() {
+        return DownloadQueue.Task.dao().mapper().apply(new AbstractDao.RecordMapper<>(), task);
+    }
+
+    @Benchmark
+    public Post intoPost() {
+        return postRecord.into(Post.class);
+    }
+
+    @Benchmark
+    public Post createPost() {
+        return Post.dao().create(post);
+    }
+
+    @Benchmark
+    public Topic createTopic() {
+        return Topic.dao().create(topic);
+    }
+}
@@ -0,0 +1,53 @@
+package pl.piotrmacha.lurker;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Metrics;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.conf.Settings;
+import org.jooq.conf.StatementType;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * jOOQ and connection pool setup. The pool itself is configured in {@code application.yml}.
+ * <p>
+ * The PostgreSQL driver prepares a statement on the server once it has seen the same SQL a few times on a connection,
+ * so jOOQ is set to always render bind values and to pad {@code IN} lists to powers of two. That keeps the number of
+ * distinct statements small enough to stay in the driver's statement cache.
+ */
+@Configuration
+public class DatabaseConfiguration {
+    @Bean
+    DSLContext dslContext(DataSource dataSource) {
+        Settings settings = new Settings()
+                .withStatementType(StatementType.PREPARED_STATEMENT)
+                .withInListPadding(true)
+                .withRenderFormatted(false)
+                .withExecuteLogging(false);
+        return DSL.using(dataSource, SQLDialect.POSTGRES, settings);
+    }
+
+    /**
+     * Reports pool usage ({@code hikaricp_connections_pending}, {@code hikaricp_connections_acquire_seconds}, ...)
+     * to the global Micrometer registry. Has to happen before the pool starts, so it's done right after the data
+     * source is created.
+     */
+    @Bean
+    static BeanPostProcessor hikariMetrics() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource hikari && hikari.getMetricsTrackerFactory() == null) {
+                    hikari.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(Metrics.globalRegistry));
+                }
+                return bean;
+            }
+        };
+    }
+}
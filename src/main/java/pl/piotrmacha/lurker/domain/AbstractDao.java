@@ -3,14 +3,17 @@ package pl.piotrmacha.lurker.domain;
 import lombok.RequiredArgsConstructor;
 import org.jooq.*;
 import org.jooq.Record;
+import org.jooq.impl.DSL;
 
 import java.time.*;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 @RequiredArgsConstructor
@@ -34,27 +37,27 @@ public abstract class AbstractDao<T, R extends Record, ID> {
     }
 
     public Optional<T> find(ID id) {
-        return Optional.ofNullable(context.selectFrom(table())
+        return timed("find", () -> Optional.ofNullable(context.selectFrom(table())
                 .where(idField().eq(id))
-                .fetchOneInto(entity()));
+                .fetchOneInto(entity())));
     }
 
     public Optional<T> findBy(Function<SelectWhereStep<R>, SelectConditionStep<R>> mapper) {
-        return Optional.ofNullable(mapper.apply(context.selectFrom(table()))
-                .fetchOneInto(entity()));
+        return timed("findBy", () -> Optional.ofNullable(mapper.apply(context.selectFrom(table()))
+                .fetchOneInto(entity())));
     }
 
     public Optional<T> findForUpdate(ID id) {
-        return Optional.ofNullable(context.selectFrom(table())
+        return timed("findForUpdate", () -> Optional.ofNullable(context.selectFrom(table())
                 .where(idField().eq(id))
                 .forUpdate()
-                .fetchOneInto(entity()));
+                .fetchOneInto(entity())));
     }
 
     public Optional<T> findByForUpdate(Function<SelectWhereStep<R>, SelectConditionStep<R>> mapper) {
-        return Optional.ofNullable(mapper.apply(context.selectFrom(table()))
+        return timed("findByForUpdate", () -> Optional.ofNullable(mapper.apply(context.selectFrom(table()))
                 .forUpdate()
-                .fetchOneInto(entity()));
+                .fetchOneInto(entity())));
     }
 
     public T get(ID id) {
@@ -81,33 +84,44 @@ public abstract class AbstractDao<T, R extends Record, ID> {
         return mapper.apply(context.selectFrom(table())).stream().map(record -> record.into(entity()));
     }
 
+    public int countAll() {
+        return timed("countAll", () -> context.fetchCount(table()));
+    }
+
     public T create(T entity) {
         RecordMapper<R> recordMapper = mapper().apply(new RecordMapper<>(), entity);
-        return context.insertInto(table())
+        return timed("create", () -> context.insertInto(table())
                 .set(recordMapper.getMapping())
                 .returning()
-                .fetchOneInto(entity());
+                .fetchOneInto(entity()));
     }
 
+    /**
+     * Updates the row only if a mapped column other than {@code last_update} differs from the stored value, so saving
+     * an unchanged entity doesn't write a new row version. The entity is returned as given in that case.
+     */
     public T update(T entity) {
         RecordMapper<R> recordMapper = mapper().apply(new RecordMapper<>(), entity);
-        return context.update(table())
+        T updated = timed("update", () -> context.update(table())
                 .set(recordMapper.getMapping())
                 .where(idField().eq(idMapper().apply(entity)))
+                .and(recordMapper.changed())
                 .returning()
-                .fetchOneInto(entity());
+                .fetchOneInto(entity()));
+        CrawlerMetrics.writes(getClass().getSimpleName(), updated != null ? 1 : 0, updated != null ? 0 : 1);
+        return updated != null ? updated : entity;
     }
 
     public void delete(T entity) {
-        context.deleteFrom(table())
+        timed("delete", () -> context.deleteFrom(table())
                 .where(idField().eq(idMapper().apply(entity)))
-                .execute();
+                .execute());
     }
 
     public void deleteById(ID id) {
-        context.deleteFrom(table())
+        timed("deleteById", () -> context.deleteFrom(table())
                 .where(idField().eq(id))
-                .execute();
+                .execute());
     }
 
     public void deleteAll() {
@@ -118,6 +132,13 @@ public abstract class AbstractDao<T, R extends Record, ID> {
         mapper.apply(context.deleteFrom(table())).execute();
     }
 
+    /**
+     * Runs a query and records its time under the {@code lurker.dao} timer, tagged with the DAO and method name.
+     */
+    protected <V> V timed(String method, Supplier<V> query) {
+        return CrawlerMetrics.dao(getClass().getSimpleName(), method).record(query);
+    }
+
     protected OffsetDateTime of(Instant instant) {
         if (instant == null) {
             return null;
@@ -138,5 +159,17 @@ public abstract class AbstractDao<T, R extends Record, ID> {
         private Map<TableField<R, ?>, Object> getMapping() {
             return fieldMapping;
         }
+
+        private Condition changed() {
+            List<Field<?>> fields = new ArrayList<>();
+            List<Field<?>> values = new ArrayList<>();
+            fieldMapping.forEach((field, value) -> {
+                if (!field.getName().equals("last_update")) {
+                    fields.add(field);
+                    values.add(DSL.val(value, field));
+                }
+            });
+            return fields.isEmpty() ? DSL.trueCondition() : DSL.row(fields).isDistinctFrom(DSL.row(values));
+        }
     }
 }
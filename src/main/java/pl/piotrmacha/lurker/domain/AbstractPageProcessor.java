@@ -2,58 +2,31 @@ package pl.piotrmacha.lurker.domain;
 
 import lombok.RequiredArgsConstructor;
 import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-
-import java.util.Optional;
-import java.util.function.Consumer;
-import java.util.stream.Stream;
 
 @RequiredArgsConstructor
-public abstract class AbstractPageProcessor implements PageProcessor {
+public abstract class AbstractPageProcessor implements PageProcessorFn {
     protected final DownloadService service;
-    protected PageInfo page;
-    protected Document document;
 
-    public void prepare(PageInfo page, Document document) {
-        this.page = page;
-        this.document = document;
+    public void process(PageInfo page, Document document) {
+        process(page, document, new PageContext(service, page, document));
     }
 
     @Override
     public abstract void process(PageInfo page, Document document, PageProcessor context);
 
-    @Override
-    public DownloadService service() {
-        return service;
-    }
-
-    @Override
-    public Stream<Element> select(Element element, String selector) {
-        return element.select(selector).stream();
-    }
-
-    @Override
-    public Stream<Element> select(String selector) {
-        return select(document, selector);
-    }
-
-    @Override
-    public Optional<Element> selectFirst(Element element, String selector) {
-        return Optional.ofNullable(element.selectFirst(selector));
-    }
-
-    @Override
-    public Optional<Element> selectFirst(String selector) {
-        return selectFirst(document, selector);
+    /**
+     * Reads the document without touching the database and returns the write to run afterwards. Processors that
+     * don't override it read the document in the write, which keeps the whole document alive until the write runs.
+     */
+    public PageWrite parse(PageInfo page, Document document) {
+        return parse(page, document, new PageContext(service, page, document));
     }
 
-    @Override
-    public void forEach(Element element, String selector, Consumer<Element> processor) {
-        select(element, selector).forEach(processor);
+    protected PageWrite parse(PageInfo page, Document document, PageProcessor context) {
+        return () -> process(page, document, context);
     }
 
-    @Override
-    public void forEach(String selector, Consumer<Element> processor) {
-        forEach(document, selector, processor);
+    public DownloadService service() {
+        return service;
     }
 }
@@ -9,10 +9,14 @@ import pl.piotrmacha.lurker.jooq.Tables;
 import pl.piotrmacha.lurker.jooq.tables.records.AccountRecord;
 
 import java.time.Instant;
-import java.util.Optional;
+import java.util.*;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
+import static org.jooq.impl.DSL.coalesce;
+import static org.jooq.impl.DSL.excluded;
+import static org.jooq.impl.DSL.row;
+
 @With
 public record Account(
         Long id,
@@ -59,6 +63,58 @@ public record Account(
             return findByOid(oid).orElseThrow(() -> new RuntimeException("Entity not found"));
         }
 
+        /**
+         * Inserts or updates accounts by oid in a single statement.
+         *
+         * @return account ids by oid
+         */
+        public Map<String, Long> upsertAll(DSLContext tx, List<Account> accounts) {
+            if (accounts.isEmpty()) {
+                return Map.of();
+            }
+
+            var insert = tx.insertInto(Tables.ACCOUNT,
+                    Tables.ACCOUNT.OID,
+                    Tables.ACCOUNT.URL,
+                    Tables.ACCOUNT.USERNAME,
+                    Tables.ACCOUNT.AVATAR_ID,
+                    Tables.ACCOUNT.LAST_UPDATE);
+            for (Account account : accounts.stream().sorted(Comparator.comparing(Account::oid)).toList()) {
+                insert = insert.values(account.oid(), account.url(), account.username(), account.avatarId(),
+                        of(account.lastUpdate()));
+            }
+
+            Map<String, Long> ids = new HashMap<>();
+            List<Long> written = new ArrayList<>();
+            insert.onConflict(Tables.ACCOUNT.OID)
+                    .doUpdate()
+                    .set(Tables.ACCOUNT.USERNAME, excluded(Tables.ACCOUNT.USERNAME))
+                    .set(Tables.ACCOUNT.AVATAR_ID, coalesce(excluded(Tables.ACCOUNT.AVATAR_ID), Tables.ACCOUNT.AVATAR_ID))
+                    .set(Tables.ACCOUNT.LAST_UPDATE, excluded(Tables.ACCOUNT.LAST_UPDATE))
+                    .where(row(Tables.ACCOUNT.USERNAME, Tables.ACCOUNT.AVATAR_ID).isDistinctFrom(
+                            excluded(Tables.ACCOUNT.USERNAME), coalesce(excluded(Tables.ACCOUNT.AVATAR_ID), Tables.ACCOUNT.AVATAR_ID)))
+                    .returning(Tables.ACCOUNT.ID, Tables.ACCOUNT.OID)
+                    .fetch()
+                    .forEach(record -> {
+                        ids.put(record.getOid(), record.getId());
+                        written.add(record.getId());
+                    });
+            // The username is copied into the full text index, written accounts may have been renamed
+            FullTextIndexer.markAuthorsDirty(tx, written);
+
+            // Accounts that didn't change aren't returned by the upsert
+            List<String> unchanged = accounts.stream().map(Account::oid).filter(oid -> !ids.containsKey(oid)).toList();
+            if (!unchanged.isEmpty()) {
+                tx.select(Tables.ACCOUNT.ID, Tables.ACCOUNT.OID)
+                        .from(Tables.ACCOUNT)
+                        .where(Tables.ACCOUNT.OID.in(unchanged))
+                        .fetch()
+                        .forEach(record -> ids.put(record.value2(), record.value1()));
+            }
+            CrawlerMetrics.writes(getClass().getSimpleName(), accounts.size() - unchanged.size(), unchanged.size());
+            return ids;
+        }
+
         @Override
         public Account create(Account entity) {
             if (entity.id() == null) {
@@ -11,8 +11,10 @@ import pl.piotrmacha.lurker.jooq.Tables;
 import pl.piotrmacha.lurker.jooq.tables.records.AssetRecord;
 
 import java.time.Instant;
-import java.util.Optional;
+import java.time.OffsetDateTime;
+import java.util.*;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 @With
@@ -23,7 +25,10 @@ public record Asset(
         String path,
         String mimeType,
         Long size,
-        Instant lastUpdate
+        Instant lastUpdate,
+        String etag,
+        String lastModified,
+        String contentHash
 ) {
     private static AssetDao dao;
 
@@ -38,12 +43,18 @@ public record Asset(
                 .withLastUpdate(Instant.now());
     }
 
+    public Asset withValidators(String etag, String lastModified, String contentHash) {
+        return withEtag(etag)
+                .withLastModified(lastModified)
+                .withContentHash(contentHash);
+    }
+
     public static AssetDao dao() {
         return dao;
     }
 
     public static Asset of(Long id, String name, String url, String path, String mimeType, Long size, Instant lastUpdate) {
-        return new Asset(id, name, url, path, mimeType, size, lastUpdate);
+        return new Asset(id, name, url, path, mimeType, size, lastUpdate, null, null, null);
     }
 
     public static Asset of(String name, String url, String path, String mimeType, Long size) {
@@ -71,6 +82,43 @@ public record Asset(
             }
         }
 
+        /**
+         * Creates assets for the URLs that don't have one yet. Created assets are passed to {@code onCreated}.
+         *
+         * @param namesByUrl asset names (also used as the initial path) by URL
+         * @return asset ids by URL, for both existing and created assets
+         */
+        public Map<String, Long> createMissing(DSLContext tx, Map<String, String> namesByUrl, Consumer<Asset> onCreated) {
+            if (namesByUrl.isEmpty()) {
+                return Map.of();
+            }
+
+            OffsetDateTime now = of(Instant.now());
+            var insert = tx.insertInto(Tables.ASSET, Tables.ASSET.NAME, Tables.ASSET.URL, Tables.ASSET.PATH, Tables.ASSET.LAST_UPDATE);
+            for (Map.Entry<String, String> entry : new TreeMap<>(namesByUrl).entrySet()) {
+                insert = insert.values(entry.getValue(), entry.getKey(), entry.getValue(), now);
+            }
+
+            Map<String, Long> ids = new HashMap<>();
+            insert.onConflict(Tables.ASSET.URL)
+                    .doNothing()
+                    .returning()
+                    .fetchInto(Asset.class)
+                    .forEach(asset -> {
+                        ids.put(asset.url(), asset.id());
+                        onCreated.accept(asset);
+                    });
+
+            List<String> existing = namesByUrl.keySet().stream().filter(url -> !ids.containsKey(url)).toList();
+            if (!existing.isEmpty()) {
+                tx.select(Tables.ASSET.ID, Tables.ASSET.URL)
+                        .from(Tables.ASSET)
+                        .where(Tables.ASSET.URL.in(existing))
+                        .forEach(record -> ids.put(record.value2(), record.value1()));
+            }
+            return ids;
+        }
+
         @Override
         public Asset create(Asset entity) {
             if (entity.id() == null) {
@@ -102,7 +150,10 @@ public record Asset(
                     .set(Tables.ASSET.URL, asset.url())
                     .set(Tables.ASSET.PATH, asset.path())
                     .set(Tables.ASSET.MIME_TYPE, asset.mimeType())
-                    .set(Tables.ASSET.SIZE, asset.size());
+                    .set(Tables.ASSET.SIZE, asset.size())
+                    .set(Tables.ASSET.ETAG, asset.etag())
+                    .set(Tables.ASSET.LAST_MODIFIED, asset.lastModified())
+                    .set(Tables.ASSET.CONTENT_HASH, asset.contentHash());
         }
 
         @Override
@@ -4,11 +4,13 @@ import lombok.With;
 import org.jooq.DSLContext;
 import org.jooq.Table;
 import org.jooq.TableField;
+import org.jooq.impl.DSL;
 import org.springframework.stereotype.Component;
 import pl.piotrmacha.lurker.jooq.Tables;
 import pl.piotrmacha.lurker.jooq.tables.records.BoardRecord;
 
 import java.time.Instant;
+import java.time.OffsetDateTime;
 import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -21,7 +23,10 @@ public record Board(
         String name,
         String description,
         Long parentId,
-        Instant lastUpdate
+        Instant lastUpdate,
+        Instant lastPostAt,
+        Instant indexedUntil,
+        Instant pendingLastPostAt
 ) {
     private static BoardDao dao;
 
@@ -34,7 +39,7 @@ public record Board(
     }
 
     public static Board of(Long id, String oid, String url, String name, String description, Long parentId, Instant lastUpdate) {
-        return new Board(id, oid, url, name, description, parentId, lastUpdate);
+        return new Board(id, oid, url, name, description, parentId, lastUpdate, null, null, null);
     }
 
     public static Board of(String oid, String url, String name, String description, Long parentId) {
@@ -72,6 +77,36 @@ public record Board(
                     });
         }
 
+        /**
+         * Starts indexing a board whose first page shows {@code lastPostAt} as the newest post. The previous newest
+         * post time becomes the watermark of this run, returned and kept in {@code indexed_until} for the following
+         * pages, unless {@code full} is set. The new newest post time is kept in {@code pending_last_post_at} until
+         * {@link #finishIndex} makes it the watermark of the next run. The watermark columns are only written here,
+         * saving a board keeps them.
+         */
+        public Optional<Instant> startIndex(Long boardId, Instant lastPostAt, boolean full) {
+            return timed("startIndex", () -> context.update(Tables.BOARD)
+                    .set(Tables.BOARD.INDEXED_UNTIL, full ? DSL.castNull(Tables.BOARD.INDEXED_UNTIL) : Tables.BOARD.LAST_POST_AT)
+                    .set(Tables.BOARD.PENDING_LAST_POST_AT, of(lastPostAt))
+                    .where(Tables.BOARD.ID.eq(boardId))
+                    .returning(Tables.BOARD.INDEXED_UNTIL)
+                    .fetchOptional(Tables.BOARD.INDEXED_UNTIL)
+                    .map(OffsetDateTime::toInstant));
+        }
+
+        /**
+         * Finishes indexing a board after the last page of the walk was persisted: the newest post time seen by
+         * {@link #startIndex} becomes the watermark of the next run. Until then a crashed or failed walk keeps the
+         * old watermark, so the pages it didn't reach are walked again.
+         */
+        public void finishIndex(Long boardId) {
+            timed("finishIndex", () -> context.update(Tables.BOARD)
+                    .set(Tables.BOARD.LAST_POST_AT, DSL.coalesce(Tables.BOARD.PENDING_LAST_POST_AT, Tables.BOARD.LAST_POST_AT))
+                    .setNull(Tables.BOARD.PENDING_LAST_POST_AT)
+                    .where(Tables.BOARD.ID.eq(boardId))
+                    .execute());
+        }
+
         @Override
         protected Class<Board> entity() {
             return Board.class;
@@ -0,0 +1,183 @@
+package pl.piotrmacha.lurker.domain;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Meters of the crawler pipeline, registered in the global Micrometer registry.
+ * <p>
+ * Meters are created once per tag combination and kept here, so recording is a map lookup and an atomic update.
+ * Until {@link MetricsService} adds the Prometheus registry the global registry is empty and recording is a no-op.
+ */
+public final class CrawlerMetrics {
+    public enum Stage {
+        FETCH,
+        PARSE,
+        PERSIST
+    }
+
+    public enum Result {
+        DONE,
+        UNCHANGED,
+        RETRY,
+        FAILURE
+    }
+
+    private static final AtomicInteger inFlight = Metrics.gauge("lurker.tasks.in.flight", new AtomicInteger());
+    private static final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Collection<?>> pipelineQueues = new ConcurrentHashMap<>();
+    private static final AtomicLong written = new AtomicLong();
+    private static final AtomicLong skipped = new AtomicLong();
+
+    private CrawlerMetrics() {
+    }
+
+    public static void taskStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    public static void taskFinished(DownloadQueue.TaskType type, Result result, long nanos) {
+        inFlight.decrementAndGet();
+        timer("lurker.task.duration", type.name(), result.name(), key -> Timer.builder("lurker.task.duration")
+                .description("Time to process a task, from poll to done or failure")
+                .tag("type", type.name().toLowerCase())
+                .tag("result", result.name().toLowerCase())
+                .publishPercentileHistogram()
+                .register(Metrics.globalRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public static void stage(DownloadQueue.TaskType type, Stage stage, long nanos) {
+        timer("lurker.task.stage", type.name(), stage.name(), key -> Timer.builder("lurker.task.stage")
+                .description("Time spent in a stage of a task, fetch includes the rate limiter wait")
+                .tag("type", type.name().toLowerCase())
+                .tag("stage", stage.name().toLowerCase())
+                .publishPercentileHistogram()
+                .register(Metrics.globalRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public static void rateLimiterWait(RateLimiterRegistry.Kind kind, double seconds) {
+        timer("lurker.ratelimiter.wait", kind.name(), "", key -> Timer.builder("lurker.ratelimiter.wait")
+                .description("Time spent waiting for a rate limiter permit")
+                .tag("kind", kind.name().toLowerCase())
+                .register(Metrics.globalRegistry))
+                .record((long) (seconds * 1_000_000_000L), TimeUnit.NANOSECONDS);
+    }
+
+    public static void databaseWait(long nanos) {
+        timer("lurker.database.wait", "", "", key -> Timer.builder("lurker.database.wait")
+                .description("Time spent waiting for a database permit")
+                .register(Metrics.globalRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public static Timer dao(String dao, String method) {
+        return timer("lurker.dao", dao, method, key -> Timer.builder("lurker.dao")
+                .description("Time spent in DAO methods")
+                .tag("dao", dao)
+                .tag("method", method)
+                .register(Metrics.globalRegistry));
+    }
+
+    /**
+     * Counts rows a DAO wrote and rows it left alone because nothing changed.
+     */
+    public static void writes(String dao, int writtenRows, int skippedRows) {
+        written.addAndGet(writtenRows);
+        skipped.addAndGet(skippedRows);
+        counter("lurker.dao.writes", dao, "written", key -> Counter.builder("lurker.dao.writes")
+                .description("Rows written by DAO upserts and updates, or skipped because they didn't change")
+                .tag("dao", dao)
+                .tag("result", "written")
+                .register(Metrics.globalRegistry))
+                .increment(writtenRows);
+        counter("lurker.dao.writes", dao, "skipped", key -> Counter.builder("lurker.dao.writes")
+                .description("Rows written by DAO upserts and updates, or skipped because they didn't change")
+                .tag("dao", dao)
+                .tag("result", "skipped")
+                .register(Metrics.globalRegistry))
+                .increment(skippedRows);
+    }
+
+    /**
+     * Rows written since the start, see {@link #writes(String, int, int)}.
+     */
+    public static long writtenRows() {
+        return written.get();
+    }
+
+    /**
+     * Rows skipped since the start, see {@link #writes(String, int, int)}.
+     */
+    public static long skippedRows() {
+        return skipped.get();
+    }
+
+    public static void retry(RateLimiterRegistry.Kind kind) {
+        counter("lurker.http.retries", kind.name(), "", key -> Counter.builder("lurker.http.retries")
+                .description("Tasks returned to the queue to be retried after a transient error")
+                .tag("kind", kind.name().toLowerCase())
+                .register(Metrics.globalRegistry))
+                .increment();
+    }
+
+    public static void leasesReclaimed(String reason, int tasks) {
+        counter("lurker.queue.reclaimed", reason, "", key -> Counter.builder("lurker.queue.reclaimed")
+                .description("Tasks returned to the queue after their lease expired or their worker stopped")
+                .tag("reason", reason)
+                .register(Metrics.globalRegistry))
+                .increment(tasks);
+    }
+
+    public static void response(RateLimiterRegistry.Kind kind, int statusCode) {
+        String status = (statusCode / 100) + "xx";
+        counter("lurker.http.responses", kind.name(), status, key -> Counter.builder("lurker.http.responses")
+                .description("HTTP responses by status class")
+                .tag("kind", kind.name().toLowerCase())
+                .tag("status", status)
+                .register(Metrics.globalRegistry))
+                .increment();
+    }
+
+    public static void bytes(RateLimiterRegistry.Kind kind, long bytes) {
+        counter("lurker.download.bytes", kind.name(), "", key -> Counter.builder("lurker.download.bytes")
+                .description("Bytes of response bodies downloaded")
+                .baseUnit("bytes")
+                .tag("kind", kind.name().toLowerCase())
+                .register(Metrics.globalRegistry))
+                .increment(bytes);
+    }
+
+    /**
+     * Reports the size of a pipeline stage queue. The gauge is registered once per stage and follows the queue of
+     * the latest pipeline.
+     */
+    public static void pipelineQueue(String stage, Collection<?> queue) {
+        if (pipelineQueues.put(stage, queue) == null) {
+            Gauge.builder("lurker.pipeline.queue", () -> pipelineQueues.get(stage).size())
+                    .description("Items waiting in the input queue of a pipeline stage")
+                    .tag("stage", stage)
+                    .register(Metrics.globalRegistry);
+        }
+    }
+
+    private static Timer timer(String name, String tag1, String tag2, Function<String, Timer> factory) {
+        return timers.computeIfAbsent(name + '|' + tag1 + '|' + tag2, factory);
+    }
+
+    private static Counter counter(String name, String tag1, String tag2, Function<String, Counter> factory) {
+        return counters.computeIfAbsent(name + '|' + tag1 + '|' + tag2, factory);
+    }
+}
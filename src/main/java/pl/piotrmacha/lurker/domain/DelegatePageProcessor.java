@@ -15,7 +15,6 @@ public class DelegatePageProcessor extends AbstractPageProcessor {
 
     @Override
     public void process(PageInfo page, Document document, PageProcessor context) {
-        prepare(page, document);
         delegate.process(page, document, context);
     }
 }
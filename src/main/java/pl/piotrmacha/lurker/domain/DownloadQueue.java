@@ -4,9 +4,12 @@ import lombok.RequiredArgsConstructor;
 import lombok.With;
 import lombok.extern.slf4j.Slf4j;
 import org.jooq.DSLContext;
+import org.jooq.Query;
+import org.jooq.Record1;
 import org.jooq.Table;
 import org.jooq.TableField;
-import org.jooq.exception.NoDataFoundException;
+import org.jooq.impl.DSL;
+import org.jooq.types.DayToSecond;
 import org.springframework.stereotype.Component;
 import pl.piotrmacha.lurker.jooq.Tables;
 import pl.piotrmacha.lurker.jooq.tables.records.DownloadQueueDoneRecord;
@@ -14,64 +17,323 @@ import pl.piotrmacha.lurker.jooq.tables.records.DownloadQueueFailureRecord;
 import pl.piotrmacha.lurker.jooq.tables.records.DownloadQueueRecord;
 import pl.piotrmacha.lurker.jooq.tables.records.DownloadQueueScheduledRecord;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.temporal.ChronoUnit;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 import static org.jooq.impl.DSL.count;
+import static org.jooq.impl.DSL.min;
+import static org.jooq.impl.DSL.select;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class DownloadQueue {
+    private static final int POLL_BATCH_SIZE = 16;
+    private static final int STREAM_FETCH_SIZE = 10_000;
+    private static final Duration EMPTY_BACKOFF = Duration.ofSeconds(1);
+
+    private final EnqueuedUrlFilter urlFilter;
+    private final WorkerRegistry workers;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<TaskType, Deque<Task>> buffers = new EnumMap<>(TaskType.class);
+    private final Map<TaskType, Integer> weights = new EnumMap<>(TaskType.class);
+    private final Map<TaskType, Integer> credits = new EnumMap<>(TaskType.class);
+    private final Map<TaskType, Long> emptyUntil = new EnumMap<>(TaskType.class);
+    private final Map<Long, Long> bufferedAt = new ConcurrentHashMap<>();
+    private final Set<Long> processing = ConcurrentHashMap.newKeySet();
+
     public Optional<Task> poll() {
-        return poll(Set.of(TaskType.ASSET, TaskType.BOARD, TaskType.TOPIC));
+        return poll(Set.of(TaskType.values()));
     }
 
+    /**
+     * Takes the next task of one of the given types. Types are served by smooth weighted round-robin, see
+     * {@link #weight(TaskType, int)}, so a backlog of one type doesn't starve the others. Within a type, tasks with
+     * a higher {@link Priority} go first, then the oldest.
+     * <p>
+     * A type found empty is skipped for a second, unless none of the others has a task either.
+     */
     public Optional<Task> poll(Set<TaskType> types) {
-        return Task.dao().pollNext(types);
+        lock.lock();
+        try {
+            int total = 0;
+            for (TaskType type : types) {
+                credits.merge(type, weightOf(type), Integer::sum);
+                total += weightOf(type);
+            }
+            List<TaskType> order = types.stream()
+                    .sorted(Comparator.comparing((TaskType type) -> credits.get(type)).reversed())
+                    .toList();
+            long now = System.nanoTime();
+            List<TaskType> skipped = new ArrayList<>();
+            for (TaskType type : order) {
+                if (isBackedOff(type, now)) {
+                    credits.put(type, 0);
+                    skipped.add(type);
+                    continue;
+                }
+                Optional<Task> task = take(type, total, now);
+                if (task.isPresent()) {
+                    return task;
+                }
+            }
+            // The dispatcher stops when nothing is polled, so types skipped as empty have to be checked again
+            for (TaskType type : skipped) {
+                Optional<Task> task = take(type, total, now);
+                if (task.isPresent()) {
+                    return task;
+                }
+            }
+            return Optional.empty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sets how many tasks of the type are polled for every task of weight 1 of the other types. Weights default to
+     * 1, so types take turns.
+     */
+    public void weight(TaskType type, int weight) {
+        lock.lock();
+        try {
+            weights.put(type, Math.max(1, weight));
+        } finally {
+            lock.unlock();
+        }
     }
 
     public int size() {
-        return size(Set.of(TaskType.ASSET, TaskType.BOARD, TaskType.TOPIC));
+        return size(Set.of(TaskType.values()));
     }
 
     public int size(Set<TaskType> types) {
         return Task.dao().queueSize(types);
     }
 
-    public void enqueue(TaskType type, PageInfo.Uri page, Long entityId) {
-        String url = type.normalize(page).uri().toString();
-        if (wasUrlAlreadyEnqueued(url)) {
-            log.info("Task already enqueued, url: {}", url);
+    /**
+     * Tasks of the given types waiting for a retry, see {@link Task#retry(Duration)}, and the time until the first of
+     * them can be polled. Empty when no task is waiting.
+     */
+    public Optional<PendingRetries> pendingRetries(Set<TaskType> types) {
+        return Task.dao().pendingRetries(types);
+    }
+
+    public void enqueue(TaskType type, PageInfo page, Long entityId) {
+        enqueue(type, page, entityId, type.priority(page));
+    }
+
+    /**
+     * Enqueues a task with the given priority. If the task is already queued with a lower priority, its priority is
+     * raised instead.
+     * <p>
+     * The URL filter only saves the database round-trip for URLs known to be queued. The unique index on
+     * {@code download_queue.url} decides, so a URL enqueued by another worker, or by another thread of this one at the
+     * same time, is not queued twice. Re-crawls ({@link Priority#refetches()}) skip the filter, they ask for pages that
+     * were fetched before, possibly minutes ago.
+     */
+    public void enqueue(TaskType type, PageInfo page, Long entityId, Priority priority) {
+        String url = type.normalize(page).url();
+        if (!priority.refetches() && wasUrlAlreadyEnqueued(url)) {
+            log.debug("Task already enqueued, url: {}", url);
+            if (priority.compareTo(type.priority(page)) > 0) {
+                Task.dao().raisePriority(url, priority);
+            }
             return;
         }
-        log.info("Enqueueing task {}, url: {}", type, url);
-        Task.of(type, url, entityId).save();
+        log.debug("Enqueueing task {}, url: {}", type, url);
+        boolean inserted = !Task.dao().insertAll(List.of(Task.of(type, url, entityId).withPriority(priority.value()))).isEmpty();
+        urlFilter.add(url);
+        if (!inserted) {
+            log.debug("Task already enqueued, url: {}", url);
+            if (priority.compareTo(type.priority(page)) > 0) {
+                Task.dao().raisePriority(url, priority);
+            }
+            return;
+        }
+        listeners.forEach(Runnable::run);
+    }
+
+    /**
+     * Marks a polled task as no longer held by this worker, after it was done, failed or returned to the queue.
+     */
+    public void finished(Task task) {
+        bufferedAt.remove(task.id());
+        processing.remove(task.id());
+        urlFilter.finished(task.url());
+    }
+
+    /**
+     * Ids of the tasks this worker still holds: all tasks being processed, however long they take, and the tasks
+     * waiting in the buffer that were polled less than {@code maxAge} ago. Buffered tasks older than that are
+     * considered lost.
+     */
+    public List<Long> held(Duration maxAge) {
+        long oldest = System.nanoTime() - maxAge.toNanos();
+        List<Long> held = new ArrayList<>(processing);
+        bufferedAt.forEach((id, polledAt) -> {
+            if (polledAt - oldest > 0) {
+                held.add(id);
+            }
+        });
+        return held;
+    }
+
+    /**
+     * Drops polled tasks that weren't handed out. Their leases are released when the worker stops.
+     */
+    public void release() {
+        lock.lock();
+        try {
+            buffers.clear();
+            emptyUntil.clear();
+            bufferedAt.clear();
+        } finally {
+            lock.unlock();
+        }
     }
 
-    private static boolean wasUrlAlreadyEnqueued(String url) {
-        return Task.dao().countByUrl(url) > 0 || TaskDone.dao().countByUrlAndDate(url, OffsetDateTime.now().minusHours(1)) > 0;
+    /**
+     * Registers tasks inserted into the queue without {@link #enqueue}, like promoted scheduled tasks, and wakes up
+     * the dispatcher.
+     */
+    public void enqueued(Collection<String> urls) {
+        urls.forEach(urlFilter::add);
+        listeners.forEach(Runnable::run);
+    }
+
+    public void resetFilter() {
+        urlFilter.reset();
+    }
+
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    private boolean wasUrlAlreadyEnqueued(String url) {
+        return switch (urlFilter.check(url)) {
+            case NEW -> false;
+            case DUPLICATE -> true;
+            // A queued URL is caught by the insert
+            case UNKNOWN -> TaskDone.dao().countByUrlAndDate(url, OffsetDateTime.now().minus(EnqueuedUrlFilter.RECENT_WINDOW)) > 0;
+        };
+    }
+
+    private boolean isBackedOff(TaskType type, long now) {
+        Deque<Task> buffer = buffers.get(type);
+        return (buffer == null || buffer.isEmpty()) && now - emptyUntil.getOrDefault(type, now) < 0;
+    }
+
+    /**
+     * Takes a task of the type, refilling its buffer from the database if needed. The type pays {@code total}
+     * credits for the task, a type without tasks loses its credits, so it doesn't get a burst of turns later.
+     */
+    private Optional<Task> take(TaskType type, int total, long now) {
+        Deque<Task> buffer = buffers.computeIfAbsent(type, t -> new ArrayDeque<>());
+        if (buffer.isEmpty()) {
+            List<Task> polled = Task.dao().pollBatch(Set.of(type), POLL_BATCH_SIZE, workers.id());
+            polled.forEach(task -> bufferedAt.put(task.id(), now));
+            buffer.addAll(polled);
+        }
+        Task task = buffer.pollFirst();
+        if (task == null) {
+            emptyUntil.put(type, now + EMPTY_BACKOFF.toNanos());
+            credits.put(type, 0);
+            return Optional.empty();
+        }
+        bufferedAt.remove(task.id());
+        processing.add(task.id());
+        credits.merge(type, -total, Integer::sum);
+        return Optional.of(task);
+    }
+
+    private int weightOf(TaskType type) {
+        return weights.getOrDefault(type, 1);
+    }
+
+    /**
+     * Order in which queued tasks of the same type are taken, highest first.
+     */
+    public enum Priority {
+        /**
+         * Later pages of topics crawled for the first time, and assets.
+         */
+        BACKFILL(0),
+        /**
+         * Board pages and first pages of topics.
+         */
+        FIRST_PAGE(10),
+        /**
+         * Pages of known topics that got new replies.
+         */
+        UPDATE(20),
+        /**
+         * Topics from the recent posts page.
+         */
+        RECENT(30);
+
+        private final int value;
+
+        Priority(int value) {
+            this.value = value;
+        }
+
+        public int value() {
+            return value;
+        }
+
+        /**
+         * Whether tasks of this priority fetch again pages that were already downloaded.
+         */
+        public boolean refetches() {
+            return this == UPDATE || this == RECENT;
+        }
     }
 
     public enum TaskType {
         ASSET,
         BOARD,
+        RECENT,
         TOPIC;
 
-        PageInfo normalize(PageInfo.Uri uri) {
+        Priority priority(PageInfo page) {
+            return switch (this) {
+                case ASSET -> Priority.BACKFILL;
+                case BOARD -> Priority.FIRST_PAGE;
+                case RECENT -> Priority.RECENT;
+                case TOPIC -> page.asTopic().offset() == 0 ? Priority.FIRST_PAGE : Priority.BACKFILL;
+            };
+        }
+
+        PageInfo normalize(PageInfo page) {
             return switch (this) {
-                case ASSET -> uri.normalize();
-                case BOARD -> uri.asBoard().normalizeOffset();
-                case TOPIC -> uri.asTopic().normalizeOffset();
+                case ASSET, RECENT -> page.asPageUri().normalize();
+                case BOARD -> page.asBoard().normalizeOffset();
+                case TOPIC -> page.asTopic().normalizeOffset();
             };
         }
     }
 
+    /**
+     * {@code tasks} waiting for a retry, the first of them can be polled in {@code next}.
+     */
+    public record PendingRetries(int tasks, Duration next) {}
+
     @With
     public record Task(
             Long id,
@@ -79,7 +341,11 @@ public class DownloadQueue {
             String url,
             Long entityId,
             Instant lockedAt,
-            Instant createdAt
+            Instant createdAt,
+            String lockedBy,
+            Integer priority,
+            Integer attempts,
+            Instant notBefore
     ) {
         public TaskDone done() {
             TaskDone taskDone = TaskDone.dao().save(new TaskDone(id, type, url, entityId, createdAt, Instant.now()));
@@ -87,6 +353,29 @@ public class DownloadQueue {
             return taskDone;
         }
 
+        /**
+         * Marks all tasks as done with one insert and one delete, in a single transaction.
+         */
+        public static List<TaskDone> doneAll(List<Task> tasks) {
+            if (tasks.isEmpty()) {
+                return List.of();
+            }
+            Instant now = Instant.now();
+            List<TaskDone> done = tasks.stream()
+                    .map(task -> new TaskDone(task.id(), task.type(), task.url(), task.entityId(), task.createdAt(), now))
+                    .toList();
+            dao().doneAll(done);
+            return done;
+        }
+
+        /**
+         * Returns the task to the queue after a transient error. The task is not polled again until {@code delay}
+         * passes, and the worker that failed it doesn't wait for that.
+         */
+        public void retry(Duration delay) {
+            dao().retry(id, delay);
+        }
+
         public TaskFailure failure(String error, String message) {
             TaskFailure taskFailure = TaskFailure.dao().save(new TaskFailure(id, type, url, entityId, error, message, createdAt, Instant.now()));
             dao().deleteById(id);
@@ -94,7 +383,7 @@ public class DownloadQueue {
         }
 
         public static Task of(Long id, TaskType type, String url, Long entityId, Instant lockedAt, Instant createdAt) {
-            return new Task(id, type, url, entityId, lockedAt, createdAt);
+            return new Task(id, type, url, entityId, lockedAt, createdAt, null, Priority.BACKFILL.value(), 0, null);
         }
 
         public static Task of(TaskType type, String url, Long entityId) {
@@ -125,29 +414,190 @@ public class DownloadQueue {
                         .fetchSingleInto(Integer.class);
             }
 
-            Optional<Task> pollNext(Set<TaskType> types) {
-                try {
-                    Task task = context.update(Tables.DOWNLOAD_QUEUE)
-                            .set(Tables.DOWNLOAD_QUEUE.LOCKED_AT, of(Instant.now()))
+            /**
+             * Leases up to {@code limit} unlocked tasks to the worker, by priority and then oldest first. Tasks waiting
+             * for a retry are skipped until their {@code not_before}.
+             */
+            List<Task> pollBatch(Set<TaskType> types, int limit, String workerId) {
+                return timed("pollBatch", () -> context.update(Tables.DOWNLOAD_QUEUE)
+                        .set(Tables.DOWNLOAD_QUEUE.LOCKED_AT, DSL.currentOffsetDateTime())
+                        .set(Tables.DOWNLOAD_QUEUE.LOCKED_BY, workerId)
+                        .where(Tables.DOWNLOAD_QUEUE.ID.in(
+                                select(Tables.DOWNLOAD_QUEUE.ID)
+                                        .from(Tables.DOWNLOAD_QUEUE)
+                                        .where(
+                                                Tables.DOWNLOAD_QUEUE.TYPE.in(types.stream().map(Enum::name).toList()),
+                                                Tables.DOWNLOAD_QUEUE.LOCKED_AT.isNull(),
+                                                Tables.DOWNLOAD_QUEUE.NOT_BEFORE.isNull().or(Tables.DOWNLOAD_QUEUE.NOT_BEFORE.le(DSL.currentOffsetDateTime()))
+                                        )
+                                        .orderBy(Tables.DOWNLOAD_QUEUE.PRIORITY.desc(), Tables.DOWNLOAD_QUEUE.CREATED_AT.asc())
+                                        .limit(limit)
+                                        .forUpdate()
+                                        .skipLocked()
+                        ))
+                        .returning()
+                        .fetchInto(Task.class)
+                        .stream()
+                        .sorted(Comparator.comparing(Task::priority).reversed().thenComparing(Task::createdAt))
+                        .toList());
+            }
+
+            Optional<PendingRetries> pendingRetries(Set<TaskType> types) {
+                return timed("pendingRetries", () -> {
+                    var row = context.select(count(), min(Tables.DOWNLOAD_QUEUE.NOT_BEFORE), DSL.currentOffsetDateTime())
+                            .from(Tables.DOWNLOAD_QUEUE)
                             .where(
                                     Tables.DOWNLOAD_QUEUE.TYPE.in(types.stream().map(Enum::name).toList()),
-                                    Tables.DOWNLOAD_QUEUE.LOCKED_AT.isNull()
+                                    Tables.DOWNLOAD_QUEUE.LOCKED_AT.isNull(),
+                                    Tables.DOWNLOAD_QUEUE.NOT_BEFORE.gt(DSL.currentOffsetDateTime())
                             )
-                            .orderBy(Tables.DOWNLOAD_QUEUE.CREATED_AT.asc())
-                            .limit(1)
-                            .returning()
-                            .fetchSingleInto(Task.class);
-                    return Optional.ofNullable(task);
-                } catch (NoDataFoundException e) {
-                    return Optional.empty();
+                            .fetchSingle();
+                    if (row.value1() == 0) {
+                        return Optional.<PendingRetries>empty();
+                    }
+                    return Optional.of(new PendingRetries(row.value1(), Duration.between(row.value3(), row.value2())));
+                });
+            }
+
+            /**
+             * Releases the lease of the task, counts the attempt and delays the next one by {@code delay}.
+             */
+            void retry(long id, Duration delay) {
+                timed("retry", () -> context.update(Tables.DOWNLOAD_QUEUE)
+                        .setNull(Tables.DOWNLOAD_QUEUE.LOCKED_AT)
+                        .setNull(Tables.DOWNLOAD_QUEUE.LOCKED_BY)
+                        .set(Tables.DOWNLOAD_QUEUE.ATTEMPTS, Tables.DOWNLOAD_QUEUE.ATTEMPTS.plus(1))
+                        .set(Tables.DOWNLOAD_QUEUE.NOT_BEFORE, DSL.currentOffsetDateTime().plus(DayToSecond.valueOf(delay)))
+                        .where(Tables.DOWNLOAD_QUEUE.ID.eq(id))
+                        .execute());
+            }
+
+            void raisePriority(String url, Priority priority) {
+                timed("raisePriority", () -> context.update(Tables.DOWNLOAD_QUEUE)
+                        .set(Tables.DOWNLOAD_QUEUE.PRIORITY, priority.value())
+                        .where(
+                                Tables.DOWNLOAD_QUEUE.URL.eq(url),
+                                Tables.DOWNLOAD_QUEUE.PRIORITY.lt(priority.value())
+                        )
+                        .execute());
+            }
+
+            /**
+             * Extends the leases of the given tasks of the worker that are older than {@code age}, so tasks that take
+             * long aren't reclaimed while the worker is still on them.
+             */
+            int renewLeases(String workerId, Collection<Long> ids, Duration age) {
+                if (ids.isEmpty()) {
+                    return 0;
                 }
+                return timed("renewLeases", () -> context.update(Tables.DOWNLOAD_QUEUE)
+                        .set(Tables.DOWNLOAD_QUEUE.LOCKED_AT, DSL.currentOffsetDateTime())
+                        .where(
+                                Tables.DOWNLOAD_QUEUE.ID.in(ids),
+                                Tables.DOWNLOAD_QUEUE.LOCKED_BY.eq(workerId),
+                                Tables.DOWNLOAD_QUEUE.LOCKED_AT.lt(DSL.currentOffsetDateTime().minus(DayToSecond.valueOf(age)))
+                        )
+                        .execute());
+            }
+
+            /**
+             * Returns up to {@code limit} tasks leased longer than {@code ttl} ago to the queue. Only expired leases
+             * are read, through the partial index on {@code locked_at}.
+             */
+            int reclaimExpired(Duration ttl, int limit) {
+                return timed("reclaimExpired", () -> context.update(Tables.DOWNLOAD_QUEUE)
+                        .setNull(Tables.DOWNLOAD_QUEUE.LOCKED_AT)
+                        .setNull(Tables.DOWNLOAD_QUEUE.LOCKED_BY)
+                        .where(Tables.DOWNLOAD_QUEUE.ID.in(
+                                select(Tables.DOWNLOAD_QUEUE.ID)
+                                        .from(Tables.DOWNLOAD_QUEUE)
+                                        .where(Tables.DOWNLOAD_QUEUE.LOCKED_AT.lt(DSL.currentOffsetDateTime().minus(DayToSecond.valueOf(ttl))))
+                                        .limit(limit)
+                                        .forUpdate()
+                                        .skipLocked()
+                        ))
+                        .execute());
+            }
+
+            void doneAll(List<TaskDone> tasks) {
+                timed("doneAll", () -> context.transactionResult(configuration -> {
+                    DSLContext tx = DSL.using(configuration);
+                    var insert = tx.insertInto(Tables.DOWNLOAD_QUEUE_DONE,
+                            Tables.DOWNLOAD_QUEUE_DONE.ID,
+                            Tables.DOWNLOAD_QUEUE_DONE.TYPE,
+                            Tables.DOWNLOAD_QUEUE_DONE.URL,
+                            Tables.DOWNLOAD_QUEUE_DONE.ENTITY_ID,
+                            Tables.DOWNLOAD_QUEUE_DONE.CREATED_AT,
+                            Tables.DOWNLOAD_QUEUE_DONE.DONE_AT);
+                    for (TaskDone task : tasks) {
+                        insert = insert.values(task.id(), task.type().name(), task.url(), task.entityId(), of(task.createdAt()), of(task.doneAt()));
+                    }
+                    insert.onConflict(Tables.DOWNLOAD_QUEUE_DONE.ID)
+                            .doUpdate()
+                            .set(Tables.DOWNLOAD_QUEUE_DONE.DONE_AT, DSL.excluded(Tables.DOWNLOAD_QUEUE_DONE.DONE_AT))
+                            .execute();
+                    return tx.deleteFrom(Tables.DOWNLOAD_QUEUE)
+                            .where(Tables.DOWNLOAD_QUEUE.ID.in(tasks.stream().map(TaskDone::id).toList()))
+                            .execute();
+                }));
             }
 
             public int countByUrl(String url) {
-                return context.select(count(Tables.DOWNLOAD_QUEUE.ID))
+                return timed("countByUrl", () -> context.select(count(Tables.DOWNLOAD_QUEUE.ID))
                         .from(Tables.DOWNLOAD_QUEUE)
                         .where(Tables.DOWNLOAD_QUEUE.URL.eq(url))
-                        .fetchSingleInto(Integer.class);
+                        .fetchSingleInto(Integer.class));
+            }
+
+            /**
+             * Inserts the tasks whose URLs aren't queued yet.
+             *
+             * @return URLs of the inserted tasks
+             */
+            List<String> insertAll(Collection<Task> tasks) {
+                return insertAll(context, tasks);
+            }
+
+            /**
+             * Inserts the tasks whose URLs aren't queued yet, within the transaction of {@code tx}.
+             *
+             * @return URLs of the inserted tasks
+             */
+            List<String> insertAll(DSLContext tx, Collection<Task> tasks) {
+                if (tasks.isEmpty()) {
+                    return List.of();
+                }
+                return timed("insertAll", () -> {
+                    var insert = tx.insertInto(Tables.DOWNLOAD_QUEUE,
+                            Tables.DOWNLOAD_QUEUE.TYPE,
+                            Tables.DOWNLOAD_QUEUE.URL,
+                            Tables.DOWNLOAD_QUEUE.ENTITY_ID,
+                            Tables.DOWNLOAD_QUEUE.CREATED_AT,
+                            Tables.DOWNLOAD_QUEUE.PRIORITY);
+                    for (Task task : tasks) {
+                        insert = insert.values(task.type().name(), task.url(), task.entityId(), of(task.createdAt()), task.priority());
+                    }
+                    return insert.onConflict(Tables.DOWNLOAD_QUEUE.URL)
+                            .doNothing()
+                            .returning(Tables.DOWNLOAD_QUEUE.URL)
+                            .fetch(Tables.DOWNLOAD_QUEUE.URL);
+                });
+            }
+
+            /**
+             * Streams all queued URLs to {@code action}. PostgreSQL fetches rows in chunks only within a transaction,
+             * without one the driver reads the whole table into memory.
+             */
+            void forEachUrl(Consumer<String> action) {
+                context.transaction(configuration -> {
+                    try (Stream<String> urls = DSL.using(configuration).select(Tables.DOWNLOAD_QUEUE.URL)
+                            .from(Tables.DOWNLOAD_QUEUE)
+                            .fetchSize(STREAM_FETCH_SIZE)
+                            .stream()
+                            .map(Record1::value1)) {
+                        urls.forEach(action);
+                    }
+                });
             }
 
             @Override
@@ -181,7 +631,11 @@ public class DownloadQueue {
                         .set(Tables.DOWNLOAD_QUEUE.URL, taks.url())
                         .set(Tables.DOWNLOAD_QUEUE.ENTITY_ID, taks.entityId())
                         .set(Tables.DOWNLOAD_QUEUE.LOCKED_AT, taks.lockedAt() != null ? of(taks.lockedAt()) : null)
-                        .set(Tables.DOWNLOAD_QUEUE.CREATED_AT, of(taks.createdAt()));
+                        .set(Tables.DOWNLOAD_QUEUE.CREATED_AT, of(taks.createdAt()))
+                        .set(Tables.DOWNLOAD_QUEUE.LOCKED_BY, taks.lockedBy())
+                        .set(Tables.DOWNLOAD_QUEUE.PRIORITY, taks.priority())
+                        .set(Tables.DOWNLOAD_QUEUE.ATTEMPTS, taks.attempts())
+                        .set(Tables.DOWNLOAD_QUEUE.NOT_BEFORE, taks.notBefore() != null ? of(taks.notBefore()) : null);
             }
 
             @Override
@@ -214,13 +668,28 @@ public class DownloadQueue {
             }
 
             public int countByUrlAndDate(String url, OffsetDateTime date) {
-                return context.select(count(Tables.DOWNLOAD_QUEUE_DONE.ID))
+                return timed("countByUrlAndDate", () -> context.select(count(Tables.DOWNLOAD_QUEUE_DONE.ID))
                         .from(Tables.DOWNLOAD_QUEUE_DONE)
                         .where(
                                 Tables.DOWNLOAD_QUEUE_DONE.URL.eq(url),
-                                Tables.DOWNLOAD_QUEUE_DONE.DONE_AT.le(date)
+                                Tables.DOWNLOAD_QUEUE_DONE.DONE_AT.ge(date)
                         )
-                        .fetchSingleInto(Integer.class);
+                        .fetchSingleInto(Integer.class));
+            }
+
+            /**
+             * Streams all done URLs to {@code action} within a transaction, see {@link TaskDao#forEachUrl}.
+             */
+            void forEachUrl(Consumer<String> action) {
+                context.transaction(configuration -> {
+                    try (Stream<String> urls = DSL.using(configuration).select(Tables.DOWNLOAD_QUEUE_DONE.URL)
+                            .from(Tables.DOWNLOAD_QUEUE_DONE)
+                            .fetchSize(STREAM_FETCH_SIZE)
+                            .stream()
+                            .map(Record1::value1)) {
+                        urls.forEach(action);
+                    }
+                });
             }
 
             @Override
@@ -322,7 +791,9 @@ public class DownloadQueue {
             String url,
             Long entityId,
             Instant createdAt,
-            Instant scheduledAt
+            Instant scheduledAt,
+            Long repeatEverySeconds,
+            Integer priority
     ) {
         private static TaskScheduledDao dao;
 
@@ -330,6 +801,28 @@ public class DownloadQueue {
             return dao;
         }
 
+        public static TaskScheduled of(TaskType type, String url, Long entityId, Instant scheduledAt, Duration repeatEvery, Priority priority) {
+            Long seconds = repeatEvery == null || repeatEvery.isZero() ? null : Math.max(1, repeatEvery.toSeconds());
+            return new TaskScheduled(null, type, url, entityId, Instant.now(), scheduledAt, seconds, priority.value());
+        }
+
+        /**
+         * Interval of a recurring task, empty for a one-off task.
+         */
+        public Optional<Duration> repeatEvery() {
+            return Optional.ofNullable(repeatEverySeconds).map(Duration::ofSeconds);
+        }
+
+        /**
+         * Next run of a recurring task after it ran at {@code now}. Runs missed while nothing promoted the task are
+         * skipped.
+         */
+        TaskScheduled next(Instant now) {
+            Duration every = repeatEvery().orElseThrow();
+            Instant next = scheduledAt.plus(every);
+            return withScheduledAt(next.isAfter(now) ? next : now.plus(every));
+        }
+
         @Component
         public static class TaskScheduledDao extends AbstractDao<TaskScheduled, DownloadQueueScheduledRecord, Long> {
             public TaskScheduledDao(DSLContext context) {
@@ -345,6 +838,107 @@ public class DownloadQueue {
                 return super.save(entity);
             }
 
+            /**
+             * Creates the scheduled task, or replaces the schedule of the task with the same URL.
+             */
+            public TaskScheduled upsert(TaskScheduled entity) {
+                return timed("upsert", () -> context.insertInto(Tables.DOWNLOAD_QUEUE_SCHEDULED)
+                        .set(Tables.DOWNLOAD_QUEUE_SCHEDULED.TYPE, entity.type().name())
+                        .set(Tables.DOWNLOAD_QUEUE_SCHEDULED.URL, entity.url())
+                        .set(Tables.DOWNLOAD_QUEUE_SCHEDULED.ENTITY_ID, entity.entityId())
+                        .set(Tables.DOWNLOAD_QUEUE_SCHEDULED.SCHEDULED_AT, of(entity.scheduledAt()))
+                        .set(Tables.DOWNLOAD_QUEUE_SCHEDULED.REPEAT_EVERY_SECONDS, entity.repeatEverySeconds())
+                        .set(Tables.DOWNLOAD_QUEUE_SCHEDULED.PRIORITY, entity.priority())
+                        .onConflict(Tables.DOWNLOAD_QUEUE_SCHEDULED.URL)
+                        .doUpdate()
+                        .set(Tables.DOWNLOAD_QUEUE_SCHEDULED.TYPE, entity.type().name())
+                        .set(Tables.DOWNLOAD_QUEUE_SCHEDULED.ENTITY_ID, entity.entityId())
+                        .set(Tables.DOWNLOAD_QUEUE_SCHEDULED.SCHEDULED_AT, of(entity.scheduledAt()))
+                        .set(Tables.DOWNLOAD_QUEUE_SCHEDULED.REPEAT_EVERY_SECONDS, entity.repeatEverySeconds())
+                        .set(Tables.DOWNLOAD_QUEUE_SCHEDULED.PRIORITY, entity.priority())
+                        .returning()
+                        .fetchOneInto(TaskScheduled.class));
+            }
+
+            public int deleteByUrl(String url) {
+                return timed("deleteByUrl", () -> context.deleteFrom(Tables.DOWNLOAD_QUEUE_SCHEDULED)
+                        .where(Tables.DOWNLOAD_QUEUE_SCHEDULED.URL.eq(url))
+                        .execute());
+            }
+
+            /**
+             * Scheduled tasks due until {@code until}, soonest first.
+             */
+            List<TaskScheduled> findDue(Instant until, int limit) {
+                return timed("findDue", () -> context.selectFrom(Tables.DOWNLOAD_QUEUE_SCHEDULED)
+                        .where(Tables.DOWNLOAD_QUEUE_SCHEDULED.SCHEDULED_AT.le(of(until)))
+                        .orderBy(Tables.DOWNLOAD_QUEUE_SCHEDULED.SCHEDULED_AT)
+                        .limit(limit)
+                        .fetchInto(TaskScheduled.class));
+            }
+
+            /**
+             * Moves the given scheduled tasks that are due into the download queue in one transaction. A task whose
+             * URL is already queued isn't queued twice. One-off tasks are removed, recurring ones move to their next
+             * run. Tasks locked by another process promoting them at the same time are skipped.
+             *
+             * @return the promoted tasks, recurring ones with their next run
+             */
+            List<TaskScheduled> promote(Collection<Long> ids) {
+                return timed("promote", () -> context.transactionResult(configuration -> {
+                    DSLContext tx = DSL.using(configuration);
+                    List<TaskScheduled> due = tx.selectFrom(Tables.DOWNLOAD_QUEUE_SCHEDULED)
+                            .where(
+                                    Tables.DOWNLOAD_QUEUE_SCHEDULED.ID.in(ids),
+                                    Tables.DOWNLOAD_QUEUE_SCHEDULED.SCHEDULED_AT.le(DSL.currentOffsetDateTime())
+                            )
+                            .forUpdate()
+                            .skipLocked()
+                            .fetchInto(TaskScheduled.class);
+                    if (due.isEmpty()) {
+                        return List.<TaskScheduled>of();
+                    }
+                    List<Long> dueIds = due.stream().map(TaskScheduled::id).toList();
+
+                    tx.insertInto(Tables.DOWNLOAD_QUEUE,
+                                    Tables.DOWNLOAD_QUEUE.TYPE,
+                                    Tables.DOWNLOAD_QUEUE.URL,
+                                    Tables.DOWNLOAD_QUEUE.ENTITY_ID,
+                                    Tables.DOWNLOAD_QUEUE.PRIORITY)
+                            .select(select(
+                                    Tables.DOWNLOAD_QUEUE_SCHEDULED.TYPE,
+                                    Tables.DOWNLOAD_QUEUE_SCHEDULED.URL,
+                                    Tables.DOWNLOAD_QUEUE_SCHEDULED.ENTITY_ID,
+                                    Tables.DOWNLOAD_QUEUE_SCHEDULED.PRIORITY)
+                                    .from(Tables.DOWNLOAD_QUEUE_SCHEDULED)
+                                    .where(Tables.DOWNLOAD_QUEUE_SCHEDULED.ID.in(dueIds)))
+                            .onConflict(Tables.DOWNLOAD_QUEUE.URL)
+                            .doNothing()
+                            .execute();
+
+                    Instant now = Instant.now();
+                    List<TaskScheduled> promoted = due.stream()
+                            .map(task -> task.repeatEvery().isPresent() ? task.next(now) : task)
+                            .toList();
+                    tx.deleteFrom(Tables.DOWNLOAD_QUEUE_SCHEDULED)
+                            .where(
+                                    Tables.DOWNLOAD_QUEUE_SCHEDULED.ID.in(dueIds),
+                                    Tables.DOWNLOAD_QUEUE_SCHEDULED.REPEAT_EVERY_SECONDS.isNull()
+                            )
+                            .execute();
+                    List<Query> reschedules = promoted.stream()
+                            .filter(task -> task.repeatEvery().isPresent())
+                            .map(task -> (Query) tx.update(Tables.DOWNLOAD_QUEUE_SCHEDULED)
+                                    .set(Tables.DOWNLOAD_QUEUE_SCHEDULED.SCHEDULED_AT, of(task.scheduledAt()))
+                                    .where(Tables.DOWNLOAD_QUEUE_SCHEDULED.ID.eq(task.id())))
+                            .toList();
+                    if (!reschedules.isEmpty()) {
+                        tx.batch(reschedules).execute();
+                    }
+                    return promoted;
+                }));
+            }
+
             @Override
             protected Class<TaskScheduled> entity() {
                 return TaskScheduled.class;
@@ -368,7 +962,9 @@ public class DownloadQueue {
                         .set(Tables.DOWNLOAD_QUEUE_SCHEDULED.URL, taks.url())
                         .set(Tables.DOWNLOAD_QUEUE_SCHEDULED.ENTITY_ID, taks.entityId())
                         .set(Tables.DOWNLOAD_QUEUE_SCHEDULED.CREATED_AT, of(taks.createdAt()))
-                        .set(Tables.DOWNLOAD_QUEUE_SCHEDULED.SCHEDULED_AT, of(taks.scheduledAt()));
+                        .set(Tables.DOWNLOAD_QUEUE_SCHEDULED.SCHEDULED_AT, of(taks.scheduledAt()))
+                        .set(Tables.DOWNLOAD_QUEUE_SCHEDULED.REPEAT_EVERY_SECONDS, taks.repeatEverySeconds())
+                        .set(Tables.DOWNLOAD_QUEUE_SCHEDULED.PRIORITY, taks.priority());
             }
 
             @Override
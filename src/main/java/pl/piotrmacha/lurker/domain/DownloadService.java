@@ -1,15 +1,17 @@
 package pl.piotrmacha.lurker.domain;
 
-import com.github.rholder.retry.*;
 import com.google.common.collect.Comparators;
-import com.google.common.util.concurrent.RateLimiter;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.zaxxer.hikari.HikariDataSource;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.Query;
+import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
+import org.jsoup.helper.HttpConnection;
 import org.jsoup.nodes.Document;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
@@ -21,13 +23,20 @@ import pl.piotrmacha.lurker.domain.processor.TopicPageProcessor;
 import pl.piotrmacha.lurker.jooq.Tables;
 import sun.misc.Signal;
 
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.*;
 import java.util.concurrent.*;
@@ -36,136 +45,144 @@ import java.util.concurrent.*;
 @ShellComponent
 @RequiredArgsConstructor
 public class DownloadService {
+    private static final int NOT_MODIFIED = 304;
+
     private final DownloadQueue queue;
     private final DSLContext jooq;
+    private final DataSource dataSource;
+    private final FullTextIndexer fullTextIndexer;
+    private final WorkerRegistry workers;
+    private final QueueScheduler scheduler;
     private final AbstractPageProcessor indexPageProcessor = new IndexPageProcessor(this);
     private final AbstractPageProcessor boardPageProcessor = new BoardPageProcessor(this);
     private final AbstractPageProcessor topicPageProcessor = new TopicPageProcessor(this);
     private final AbstractPageProcessor newPostsPageProcessor = new NewPostsPageProcessor(this);
-    private final ExecutorService executor = Executors.newFixedThreadPool(64, new ThreadFactoryBuilder()
-            .setThreadFactory(Thread.ofPlatform().factory())
-            .setNameFormat("executor-%d")
-            .build());
-    private RateLimiter httpRateLimiter = RateLimiter.create(5.0);
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+    private RateLimiterRegistry rateLimiters = new RateLimiterRegistry(5.0, 5.0, false);
     private Path assetsDirectory = Path.of("./assets/");
+    private boolean contentAddressed = false;
+    private boolean fullIndex = false;
+    private Semaphore databasePermits;
 
     @ShellMethod(value = "Build download queue", key = "build-index")
     public void buildIndex(
             @ShellOption(value = "--uri", defaultValue = "https://themodders.org") URI uri,
-            @ShellOption(value = "--rps", defaultValue = "4.0") double rps
-    ) throws IOException {
-        httpRateLimiter = RateLimiter.create(rps);
+            @ShellOption(value = "--rps", defaultValue = "4.0") double rps,
+            @ShellOption(value = "--adaptive", defaultValue = "false") boolean adaptive,
+            @ShellOption(value = "--full", defaultValue = "false") boolean full,
+            @ShellOption(value = "--concurrency", defaultValue = "64") int concurrency,
+            @ShellOption(value = "--parsers", defaultValue = "0") int parsers,
+            @ShellOption(value = "--writers", defaultValue = "0") int writers,
+            @ShellOption(value = "--queue-capacity", defaultValue = "128") int queueCapacity,
+            @ShellOption(value = "--write-batch", defaultValue = "16") int writeBatch,
+            @ShellOption(value = "--virtual-threads", defaultValue = "false") boolean virtualThreads
+    ) throws IOException, InterruptedException {
+        rateLimiters = new RateLimiterRegistry(rps, rps, adaptive);
+        fullIndex = full;
+        TaskPipeline.Settings settings = pipelineSettings(concurrency, parsers, writers, queueCapacity, writeBatch, virtualThreads);
         PageInfo index = new PageInfo.Uri(uri);
         Document document = getDocument(uri.toString());
-        indexPageProcessor.process(index, document, indexPageProcessor);
+        indexPageProcessor.process(index, document);
         Signal.handle(new Signal("INT"), signal -> {
             log.info("Existing...");
-            executor.shutdown();
             System.exit(0);
         });
 
-        List<Future<TaskResult>> tasks = new ArrayList<>();
-        int tasksEmptyTimes = 0;
-        while (queue.size() > 0 || !tasks.isEmpty()) {
-            queue.poll(Set.of(DownloadQueue.TaskType.BOARD))
-                    .map(task -> (Callable<TaskResult>) () -> processTask(task))
-                    .map(executor::submit)
-                    .ifPresent(tasks::add);
-
-            List<Future<TaskResult>> futuresDone = tasks.stream().filter(Future::isDone).peek(Future::resultNow).toList();
-            tasks.removeAll(futuresDone);
-
-            if (tasks.isEmpty()) {
-                tasksEmptyTimes++;
-                if (tasksEmptyTimes > 100) {
-                    break;
-                }
-            } else {
-                tasksEmptyTimes = 0;
-            }
-        }
+        runPipeline(Set.of(DownloadQueue.TaskType.BOARD), settings, false);
 
         log.info("Index built successfully");
-        executor.shutdown();
     }
 
     @ShellMethod(value = "Build download queue from new posts", key = "build-new-posts")
     public void buildNewPosts(
             @ShellOption(value = "--uri", defaultValue = "https://themodders.org/index.php?action=recent") URI uri,
-            @ShellOption(value = "--rps", defaultValue = "4.0") double rps
-    ) throws IOException {
-        httpRateLimiter = RateLimiter.create(rps);
+            @ShellOption(value = "--rps", defaultValue = "4.0") double rps,
+            @ShellOption(value = "--adaptive", defaultValue = "false") boolean adaptive
+    ) throws IOException, InterruptedException {
+        rateLimiters = new RateLimiterRegistry(rps, rps, adaptive);
         Signal.handle(new Signal("INT"), signal -> {
             log.info("Existing...");
-            executor.shutdown();
             System.exit(0);
         });
 
         for (int i = 0; i < 100; i += 10) {
             PageInfo index = new PageInfo.Uri(URI.create(uri.toString() + ";start=" + i));
-            Document document = getDocument(index.uri().toString());
-            newPostsPageProcessor.process(index, document, newPostsPageProcessor);
+            String url = index.uri().toString();
+            Optional<Page> page = getDocument(url, PageCache.dao().find(url).orElse(null), DownloadQueue.TaskType.BOARD);
+            if (page.isEmpty()) {
+                log.info("Page not modified: {}", url);
+                continue;
+            }
+            newPostsPageProcessor.process(index, page.get().document());
+            page.get().cache().save();
         }
 
         log.info("New posts index built");
-        executor.shutdown();
     }
 
     @ShellMethod(value = "Download topics from queue", key = "download-topics")
     public void downloadTopics(
+            @ShellOption(value = "--uri", defaultValue = "https://themodders.org") URI uri,
             @ShellOption(value = "--dir", defaultValue = "./assets/") String dir,
-            @ShellOption(value = "--rps", defaultValue = "4.0") double rps
-    ) throws IOException {
-        httpRateLimiter = RateLimiter.create(rps);
+            @ShellOption(value = "--content-addressed", defaultValue = "false") boolean contentAddressed,
+            @ShellOption(value = "--rps", defaultValue = "4.0") double rps,
+            @ShellOption(value = "--asset-rps", defaultValue = "10.0") double assetRps,
+            @ShellOption(value = "--asset-weight", defaultValue = "1") int assetWeight,
+            @ShellOption(value = "--adaptive", defaultValue = "false") boolean adaptive,
+            @ShellOption(value = "--concurrency", defaultValue = "64") int concurrency,
+            @ShellOption(value = "--parsers", defaultValue = "0") int parsers,
+            @ShellOption(value = "--writers", defaultValue = "0") int writers,
+            @ShellOption(value = "--queue-capacity", defaultValue = "128") int queueCapacity,
+            @ShellOption(value = "--write-batch", defaultValue = "16") int writeBatch,
+            @ShellOption(value = "--virtual-threads", defaultValue = "false") boolean virtualThreads,
+            @ShellOption(value = "--daemon", defaultValue = "false") boolean daemon
+    ) throws IOException, InterruptedException {
+        rateLimiters = new RateLimiterRegistry(rps, assetRps, adaptive);
+        rateLimiters.registerPageHost(uri);
         if (dir != null && !dir.isBlank()) {
             assetsDirectory = Path.of(dir);
         }
+        this.contentAddressed = contentAddressed;
+        queue.weight(DownloadQueue.TaskType.ASSET, assetWeight);
+        TaskPipeline.Settings settings = pipelineSettings(concurrency, parsers, writers, queueCapacity, writeBatch, virtualThreads);
         Signal.handle(new Signal("INT"), signal -> {
             log.info("Existing...");
-            executor.shutdown();
             System.exit(0);
         });
 
-        jooq.update(Tables.DOWNLOAD_QUEUE)
-                .set(Tables.DOWNLOAD_QUEUE.LOCKED_AT, (OffsetDateTime) null)
-                .execute();
-
-        List<Future<TaskResult>> tasks = new ArrayList<>();
-        int tasksEmptyTimes = 0;
-        while (queue.size(Set.of(DownloadQueue.TaskType.TOPIC, DownloadQueue.TaskType.ASSET)) > 0 || !tasks.isEmpty()) {
-            queue.poll(Set.of(DownloadQueue.TaskType.TOPIC, DownloadQueue.TaskType.ASSET))
-                    .map(task -> (Callable<TaskResult>) () -> processTask(task))
-                    .map(executor::submit)
-                    .ifPresent(tasks::add);
-
-            List<Future<TaskResult>> futuresDone = tasks.stream().filter(Future::isDone).peek(Future::resultNow).toList();
-            tasks.removeAll(futuresDone);
-
-            if (tasks.isEmpty()) {
-                tasksEmptyTimes++;
-                if (tasksEmptyTimes > 100) {
-                    break;
-                }
-            } else {
-                tasksEmptyTimes = 0;
-            }
+        if (daemon) {
+            // Scheduled tasks can be of any type, recent posts and board pages included
+            runPipeline(Set.of(DownloadQueue.TaskType.values()), settings, true);
+        } else {
+            runPipeline(Set.of(DownloadQueue.TaskType.TOPIC, DownloadQueue.TaskType.ASSET), settings, false);
         }
 
         log.info("Download finished");
-        executor.shutdown();
     }
 
     @ShellMethod(value = "Clear download queue", key = "clear-download-queue")
     public void clearDownloadQueue() throws IOException {
         jooq.deleteFrom(Tables.DOWNLOAD_QUEUE).execute();
+        queue.resetFilter();
+    }
+
+    @ShellMethod(value = "Clear page cache, so all pages are processed again", key = "clear-page-cache")
+    public void clearPageCache() {
+        jooq.truncate(Tables.PAGE_CACHE).execute();
     }
 
     @ShellMethod(value = "Clear all", key = "clear-all")
     public void clearEverything() throws IOException {
+        jooq.truncate(Tables.PAGE_CACHE).execute();
         jooq.truncate(Tables.DOWNLOAD_QUEUE_SCHEDULED).cascade().execute();
         jooq.truncate(Tables.DOWNLOAD_QUEUE_DONE).cascade().execute();
         jooq.truncate(Tables.DOWNLOAD_QUEUE_FAILURE).cascade().execute();
         jooq.truncate(Tables.DOWNLOAD_QUEUE).cascade().execute();
+        jooq.truncate(Tables.POST_FULLTEXT_DIRTY).execute();
         jooq.truncate(Tables.POST_FULLTEXT).cascade().execute();
         jooq.truncate(Tables.POST_ATTACHMENT).cascade().execute();
         jooq.truncate(Tables.POST).cascade().execute();
@@ -173,6 +190,7 @@ public class DownloadService {
         jooq.truncate(Tables.BOARD).cascade().execute();
         jooq.truncate(Tables.ACCOUNT).cascade().execute();
         jooq.truncate(Tables.ASSET).cascade().execute();
+        queue.resetFilter();
     }
 
     @ShellMethod(value = "Reschedule failures", key = "reschedule-failures")
@@ -189,6 +207,7 @@ public class DownloadService {
                                 .set(Tables.DOWNLOAD_QUEUE.ENTITY_ID, failure.getEntityId())
                                 .set(Tables.DOWNLOAD_QUEUE.LOCKED_AT, (OffsetDateTime) null)
                                 .set(Tables.DOWNLOAD_QUEUE.CREATED_AT, failure.getCreatedAt())
+                                .onConflictDoNothing()
                                 .execute();
                         jooq.deleteFrom(Tables.DOWNLOAD_QUEUE_FAILURE)
                                 .where(Tables.DOWNLOAD_QUEUE_FAILURE.ID.eq(failure.getId()))
@@ -201,91 +220,416 @@ public class DownloadService {
                 });
     }
 
-    public void addTask(DownloadQueue.TaskType type, PageInfo.Uri pageInfo, Long entityId) {
+    /**
+     * Whether board pages are indexed in full, ignoring the watermark left by the previous {@code build-index}.
+     */
+    public boolean isFullIndex() {
+        return fullIndex;
+    }
+
+    public void addTask(DownloadQueue.TaskType type, PageInfo pageInfo, Long entityId) {
         queue.enqueue(type, pageInfo, entityId);
     }
 
-    private TaskResult processTask(DownloadQueue.Task task) {
-        log.info("Processing task: {}", task);
+    public void addTask(DownloadQueue.TaskType type, PageInfo pageInfo, Long entityId, DownloadQueue.Priority priority) {
+        queue.enqueue(type, pageInfo, entityId, priority);
+    }
+
+    /**
+     * Registers tasks inserted into the queue by a DAO, see {@link DownloadQueue#enqueued}.
+     */
+    public void enqueued(Collection<String> urls) {
+        if (!urls.isEmpty()) {
+            queue.enqueued(urls);
+        }
+    }
+
+    /**
+     * Runs the tasks of the given types through a {@link TaskPipeline} until the queue is drained. In daemon mode the
+     * {@link QueueScheduler} promotes scheduled tasks and the pipeline keeps running until the process is stopped.
+     */
+    private void runPipeline(Set<DownloadQueue.TaskType> types, TaskPipeline.Settings settings, boolean daemon) throws InterruptedException {
+        long written = CrawlerMetrics.writtenRows();
+        long skipped = CrawlerMetrics.skippedRows();
+        workers.start(rateLimiters, queue);
+        fullTextIndexer.start();
+        if (daemon) {
+            scheduler.start();
+        }
         try {
-            switch (task.type()) {
-                case BOARD -> {
-                    PageInfo pageInfo = new PageInfo.Uri(URI.create(task.url()));
-                    Document document = getDocument(task.url());
-                    boardPageProcessor.process(pageInfo, document, boardPageProcessor);
-                }
-                case TOPIC -> {
-                    PageInfo pageInfo = new PageInfo.Uri(URI.create(task.url()));
-                    Document document = getDocument(task.url());
-                    topicPageProcessor.process(pageInfo, document, topicPageProcessor);
-                }
-                case ASSET -> {
-                    try {
-                        HttpResponse<byte[]> file = getFile(task.url());
-                        Asset asset = Asset.dao().get(task.entityId());
-                        String mimeType = file.headers().firstValue("Content-Type").orElse("application/octet-stream");
-                        String extension = Arrays.stream(mimeType.split("/")).max(Comparator.naturalOrder()).orElse(".bin");
-                        String filename = asset.path() + "." + extension;
-                        Path path = Path.of(assetsDirectory.toString(), filename);
-                        Files.createDirectories(path.getParent());
-                        Files.write(path, file.body());
-                        asset.withDownloadInfo(mimeType, filename, (long) file.body().length).save();
-                    } catch (Exception e) {
-                        log.error("Couldn't download asset from {}", task.url());
+            new TaskPipeline<>(settings, this::fetch, this::parse, this::persist).run(queue, types, daemon);
+        } finally {
+            scheduler.stop();
+            queue.release();
+            workers.stop();
+            fullTextIndexer.stop();
+            log.info("Wrote {} rows, skipped {} unchanged rows",
+                    CrawlerMetrics.writtenRows() - written, CrawlerMetrics.skippedRows() - skipped);
+        }
+    }
+
+    /**
+     * Pipeline settings: fetchers default to {@code concurrency}, parsers to the number of cores and writers to twice
+     * the number of cores, within the connection pool size. Besides writers, the pipeline needs a connection for
+     * about every eight fetchers for their cache lookups. All database work is gated by a fair semaphore sized to
+     * those needs, capped by the pool size, so workers wait for a permit instead of timing out in the pool.
+     */
+    private TaskPipeline.Settings pipelineSettings(
+            int concurrency, int parsers, int writers, int queueCapacity, int writeBatch, boolean virtualThreads
+    ) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int poolSize = dataSource instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : concurrency;
+        int lookups = Math.max(1, concurrency / 8);
+        int writerCount = writers > 0 ? writers : Math.max(1, Math.min(2 * cores, poolSize - lookups));
+        int connections = writerCount + lookups;
+        if (connections > poolSize) {
+            log.warn("{} writers and {} fetchers need about {} database connections, but the pool has {}. "
+                    + "Workers will wait for connections, raise LURKER_DB_POOL_SIZE (and max_connections in PostgreSQL) "
+                    + "or lower --concurrency and --writers", writerCount, concurrency, connections, poolSize);
+        }
+        databasePermits = new Semaphore(Math.min(connections, poolSize), true);
+        return new TaskPipeline.Settings(
+                concurrency,
+                parsers > 0 ? parsers : cores,
+                writerCount,
+                queueCapacity,
+                Math.max(1, writeBatch),
+                virtualThreads);
+    }
+
+    private <T> T withDatabase(Callable<T> action) throws Exception {
+        long start = System.nanoTime();
+        databasePermits.acquire();
+        CrawlerMetrics.databaseWait(System.nanoTime() - start);
+        try {
+            return action.call();
+        } finally {
+            databasePermits.release();
+        }
+    }
+
+    /**
+     * Fetch stage: conditional download of a page into memory or of an asset into a temporary file.
+     */
+    private Work fetch(DownloadQueue.Task task) {
+        log.debug("Processing task: {}", task);
+        long start = System.nanoTime();
+        CrawlerMetrics.taskStarted();
+        try {
+            return switch (task.type()) {
+                case BOARD, RECENT, TOPIC -> fetchPage(task, start);
+                case ASSET -> fetchAsset(task, start);
+            };
+        } catch (Exception e) {
+            return new Work.Failed(task, start, e);
+        }
+    }
+
+    private Work fetchPage(DownloadQueue.Task task, long start) throws Exception {
+        PageCache cached = withDatabase(() -> PageCache.dao().find(task.url()).orElse(null));
+        Optional<PageBody> body = getPage(task.url(), cached, task.type());
+        if (body.isEmpty()) {
+            log.debug("Page not modified: {}", task.url());
+            return new Work.Unchanged(task, start);
+        }
+        return new Work.FetchedPage(task, start, body.get());
+    }
+
+    private Work fetchAsset(DownloadQueue.Task task, long start) throws Exception {
+        Path download = null;
+        try {
+            Files.createDirectories(assetsDirectory);
+            Asset asset = withDatabase(() -> Asset.dao().get(task.entityId()));
+            boolean onDisk = isDownloaded(asset);
+            download = Files.createTempFile(assetsDirectory, "download-", ".part");
+            Optional<FileDownload> file = getFile(task.url(), download, onDisk ? asset : null);
+            if (file.isEmpty() || (onDisk && file.get().contentHash().equals(asset.contentHash()))) {
+                log.debug("Asset not modified: {}", task.url());
+                Files.deleteIfExists(download);
+                return new Work.Unchanged(task, start);
+            }
+            return new Work.FetchedAsset(task, start, asset, onDisk, download, file.get());
+        } catch (Exception e) {
+            if (download != null) {
+                Files.deleteIfExists(download);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Parse stage: builds the document and reads it with the page processor, leaving only the database writes.
+     */
+    private Work parse(Work work) {
+        if (!(work instanceof Work.FetchedPage page)) {
+            return work;
+        }
+        try {
+            AbstractPageProcessor processor = switch (page.task().type()) {
+                case BOARD -> boardPageProcessor;
+                case RECENT -> newPostsPageProcessor;
+                default -> topicPageProcessor;
+            };
+            PageInfo pageInfo = new PageInfo.Uri(URI.create(page.task().url()));
+            PageWrite write = processor.parse(pageInfo, page.body().parse(page.task().type()));
+            return new Work.ParsedPage(page.task(), page.start(), write, page.body().cache());
+        } catch (Exception e) {
+            return new Work.Failed(page.task(), page.start(), e);
+        }
+    }
+
+    /**
+     * Persist stage: runs the writes of a batch one by one, then marks the successful tasks as done together. The
+     * cache entry of a page is saved only after its write succeeds, so a failed page is processed again next time.
+     */
+    private void persist(List<Work> batch) {
+        List<Work> done = new ArrayList<>(batch.size());
+        for (Work work : batch) {
+            try {
+                switch (work) {
+                    case Work.Failed failed -> throw failed.error();
+                    case Work.Unchanged unchanged -> done.add(unchanged);
+                    case Work.ParsedPage page -> {
+                        long start = System.nanoTime();
+                        withDatabase(() -> {
+                            page.write().persist();
+                            return page.cache().save();
+                        });
+                        CrawlerMetrics.stage(page.task().type(), CrawlerMetrics.Stage.PERSIST, System.nanoTime() - start);
+                        done.add(page);
                     }
+                    case Work.FetchedAsset asset -> done.add(storeAsset(asset));
+                    case Work.FetchedPage page -> throw new IllegalStateException("Page wasn't parsed: " + page.task().url());
                 }
-                default -> throw new IllegalArgumentException("Unsupported task type: " + task.type());
+            } catch (Exception e) {
+                fail(work, e);
             }
-            DownloadQueue.TaskDone taskDone = task.done();
-            log.info("Task done: {}", task);
-            return new TaskResult.Done(taskDone);
+        }
+
+        try {
+            withDatabase(() -> DownloadQueue.Task.doneAll(done.stream().map(Work::task).toList()));
         } catch (Exception e) {
-            log.error("Error processing task: {}", task, e);
-            return new TaskResult.Failure(task.failure(e.getClass().getName(), e.getMessage()));
+            done.forEach(work -> fail(work, e));
+            return;
+        }
+        for (Work work : done) {
+            log.debug("Task done: {}", work.task());
+            CrawlerMetrics.Result result = work instanceof Work.Unchanged ? CrawlerMetrics.Result.UNCHANGED : CrawlerMetrics.Result.DONE;
+            CrawlerMetrics.taskFinished(work.task().type(), result, System.nanoTime() - work.start());
         }
     }
 
-    private Document getDocument(String url) throws IOException {
-        Retryer<Document> retryer = RetryerBuilder.<Document>newBuilder()
-                .retryIfExceptionOfType(IOException.class)
-                .retryIfRuntimeException()
-                .withWaitStrategy(WaitStrategies.exponentialWait(1, 30, TimeUnit.SECONDS))
-                .withStopStrategy(StopStrategies.stopAfterDelay(120, TimeUnit.SECONDS))
-                .build();
+    private Work storeAsset(Work.FetchedAsset work) throws Exception {
+        DownloadQueue.Task task = work.task();
+        Asset asset = work.asset();
+        FileDownload file = work.file();
         try {
-            return retryer.call(() -> {
-                httpRateLimiter.acquire();
-                return Jsoup.connect(url).get();
-            });
-        } catch (ExecutionException | RetryException e) {
-            log.error("Error fetching document: {}", url, e);
-            throw new RuntimeException(e);
+            String mimeType = file.headers().firstValue("Content-Type").orElse("application/octet-stream");
+            String extension = Arrays.stream(mimeType.split("/")).max(Comparator.naturalOrder()).orElse(".bin");
+            String filename = contentAddressed
+                    ? contentAddressedPath(file.contentHash(), extension)
+                    : work.onDisk() ? asset.path() : asset.path() + "." + extension;
+            Path path = Path.of(assetsDirectory.toString(), filename);
+            if (contentAddressed && Files.exists(path)) {
+                log.info("Asset {} is already stored as {}", task.url(), filename);
+            } else {
+                Files.createDirectories(path.getParent());
+                Files.move(work.download(), path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Asset downloaded = asset.withDownloadInfo(filename, mimeType, Files.size(path))
+                    .withValidators(file.etag(), file.lastModified(), file.contentHash());
+            long start = System.nanoTime();
+            withDatabase(downloaded::save);
+            CrawlerMetrics.stage(DownloadQueue.TaskType.ASSET, CrawlerMetrics.Stage.PERSIST, System.nanoTime() - start);
+            return work;
+        } finally {
+            Files.deleteIfExists(work.download());
         }
     }
 
-    private HttpResponse<byte[]> getFile(String url) throws IOException {
-        Retryer<HttpResponse<byte[]>> retryer = RetryerBuilder.<HttpResponse<byte[]>>newBuilder()
-                .retryIfExceptionOfType(IOException.class)
-                .retryIfRuntimeException()
-                .withWaitStrategy(WaitStrategies.exponentialWait(1, 10, TimeUnit.SECONDS))
-                .withStopStrategy(StopStrategies.stopAfterDelay(10, TimeUnit.SECONDS))
-                .retryIfResult(r -> r.statusCode() < 200 || r.statusCode() > 399)
-                .build();
+    /**
+     * Returns the task to the queue with a backoff when the error is transient and attempts are left, otherwise
+     * moves it to the failures. Either way the writer moves on right away.
+     */
+    private void fail(Work work, Exception e) {
+        DownloadQueue.Task task = work.task();
+        boolean retry = RetryPolicy.shouldRetry(e, task.attempts());
         try {
-            return retryer.call(() -> {
-                try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
-                    HttpRequest request = HttpRequest.newBuilder(URI.create(url)).build();
-                    return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
-                }
-            });
-        } catch (ExecutionException | RetryException e) {
-            throw new RuntimeException(e);
+            if (retry) {
+                Duration delay = RetryPolicy.backoff(task.attempts());
+                log.warn("Error processing task: {}, attempt {} of {}, retrying in {}s: {}",
+                        task.url(), task.attempts() + 1, RetryPolicy.MAX_ATTEMPTS, delay.toSeconds(), e.toString());
+                withDatabase(() -> {
+                    task.retry(delay);
+                    return null;
+                });
+                CrawlerMetrics.retry(task.type() == DownloadQueue.TaskType.ASSET ? RateLimiterRegistry.Kind.ASSET : RateLimiterRegistry.Kind.PAGE);
+            } else {
+                log.error("Error processing task: {}", task, e);
+                withDatabase(() -> task.failure(e.getClass().getName(), e.getMessage()));
+            }
+        } catch (Exception ee) {
+            log.error("Couldn't save failure of task: {}", task, ee);
+        }
+        CrawlerMetrics.Result result = retry ? CrawlerMetrics.Result.RETRY : CrawlerMetrics.Result.FAILURE;
+        CrawlerMetrics.taskFinished(task.type(), result, System.nanoTime() - work.start());
+    }
+
+    /**
+     * Path of a file in the content-addressed store, sharded by the first two bytes of the hash so that no
+     * directory ends up with more than a few thousand files: {@code ab/cd/abcd...ef.png}.
+     */
+    private static String contentAddressedPath(String contentHash, String extension) {
+        return contentHash.substring(0, 2) + "/" + contentHash.substring(2, 4) + "/" + contentHash + "." + extension;
+    }
+
+    private boolean isDownloaded(Asset asset) {
+        return asset.size() != null
+                && asset.size() > 0
+                && Files.exists(Path.of(assetsDirectory.toString(), asset.path()));
+    }
+
+    private Document getDocument(String url) throws IOException, InterruptedException {
+        return getDocument(url, null, DownloadQueue.TaskType.BOARD).orElseThrow().document();
+    }
+
+    private Optional<Page> getDocument(String url, PageCache cached, DownloadQueue.TaskType type) throws IOException, InterruptedException {
+        return getPage(url, cached, type).map(body -> new Page(body.parse(type), body.cache()));
+    }
+
+    /**
+     * Fetches a page through the shared {@link HttpClient}. Unlike {@code Jsoup.connect}, the JDK client doesn't pin
+     * virtual threads while waiting for the network.
+     * <p>
+     * With a cache entry the request is conditional. Returns empty when the server responds with 304 or the body
+     * hashes to the same value as last time, in which case the page doesn't need to be parsed at all.
+     * <p>
+     * Fetch times are recorded under the given task type; index and recent posts pages count as boards.
+     * <p>
+     * Errors are not retried here, a failed task goes back to the queue instead, see {@link RetryPolicy}.
+     */
+    private Optional<PageBody> getPage(String url, PageCache cached, DownloadQueue.TaskType type) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .header("User-Agent", HttpConnection.DEFAULT_UA);
+        if (cached != null) {
+            conditional(request, cached.etag(), cached.lastModified());
+        }
+        long fetchStart = System.nanoTime();
+        HttpResponse<byte[]> response = send(request.build(), HttpResponse.BodyHandlers.ofByteArray(), RateLimiterRegistry.Kind.PAGE);
+        CrawlerMetrics.stage(type, CrawlerMetrics.Stage.FETCH, System.nanoTime() - fetchStart);
+        CrawlerMetrics.bytes(RateLimiterRegistry.Kind.PAGE, response.body().length);
+        if (response.statusCode() == NOT_MODIFIED) {
+            return Optional.empty();
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new HttpStatusException("HTTP error fetching URL", response.statusCode(), url);
+        }
+        String contentHash = Hashing.sha256().hashBytes(response.body()).toString();
+        if (cached != null && cached.isSameContent(contentHash)) {
+            return Optional.empty();
+        }
+        PageCache cache = PageCache.of(url,
+                response.headers().firstValue("ETag").orElse(null),
+                response.headers().firstValue("Last-Modified").orElse(null),
+                contentHash);
+        return Optional.of(new PageBody(url, response.body(), cache));
+    }
+
+    /**
+     * Streams a file to {@code target}, hashing it on the way. With a previously downloaded asset the request is
+     * conditional and returns empty on 304.
+     */
+    private Optional<FileDownload> getFile(String url, Path target, Asset cached) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url));
+        if (cached != null) {
+            conditional(request, cached.etag(), cached.lastModified());
+        }
+        long fetchStart = System.nanoTime();
+        HttpResponse<InputStream> response = send(request.build(), HttpResponse.BodyHandlers.ofInputStream(), RateLimiterRegistry.Kind.ASSET);
+        try (InputStream body = response.body()) {
+            if (response.statusCode() == NOT_MODIFIED) {
+                return Optional.empty();
+            }
+            if (response.statusCode() / 100 != 2) {
+                throw new HttpStatusException("HTTP error fetching URL", response.statusCode(), url);
+            }
+            HashingInputStream hashing = new HashingInputStream(Hashing.sha256(), body);
+            long bytes = Files.copy(hashing, target, StandardCopyOption.REPLACE_EXISTING);
+            CrawlerMetrics.stage(DownloadQueue.TaskType.ASSET, CrawlerMetrics.Stage.FETCH, System.nanoTime() - fetchStart);
+            CrawlerMetrics.bytes(RateLimiterRegistry.Kind.ASSET, bytes);
+            return Optional.of(new FileDownload(response.headers(), hashing.hash().toString()));
+        }
+    }
+
+    private static void conditional(HttpRequest.Builder request, String etag, String lastModified) {
+        if (etag != null) {
+            request.header("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            request.header("If-Modified-Since", lastModified);
         }
     }
 
-    sealed interface TaskResult {
-        record Done(DownloadQueue.TaskDone task) implements TaskResult {}
+    private <T> HttpResponse<T> send(
+            HttpRequest request,
+            HttpResponse.BodyHandler<T> bodyHandler,
+            RateLimiterRegistry.Kind kind
+    ) throws IOException, InterruptedException {
+        CrawlerMetrics.rateLimiterWait(kind, rateLimiters.acquire(request.uri(), kind));
+        long start = System.nanoTime();
+        try {
+            HttpResponse<T> response = httpClient.send(request, bodyHandler);
+            CrawlerMetrics.response(kind, response.statusCode());
+            rateLimiters.onResponse(request.uri(), kind, response.statusCode(), Duration.ofNanos(System.nanoTime() - start));
+            return response;
+        } catch (IOException e) {
+            rateLimiters.onError(request.uri(), kind);
+            throw e;
+        }
+    }
+
+    record Page(Document document, PageCache cache) {}
+
+    record FileDownload(HttpHeaders headers, String contentHash) {
+        String etag() {
+            return headers.firstValue("ETag").orElse(null);
+        }
+
+        String lastModified() {
+            return headers.firstValue("Last-Modified").orElse(null);
+        }
+    }
+
+    record PageBody(String url, byte[] body, PageCache cache) {
+        Document parse(DownloadQueue.TaskType type) {
+            long start = System.nanoTime();
+            try {
+                Document document = Jsoup.parse(new ByteArrayInputStream(body), null, url);
+                CrawlerMetrics.stage(type, CrawlerMetrics.Stage.PARSE, System.nanoTime() - start);
+                return document;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * A task on its way through the {@link TaskPipeline}. {@code start} is the {@link System#nanoTime()} at which
+     * the task was taken from the queue.
+     */
+    sealed interface Work {
+        DownloadQueue.Task task();
+
+        long start();
+
+        record Unchanged(DownloadQueue.Task task, long start) implements Work {}
+
+        record Failed(DownloadQueue.Task task, long start, Exception error) implements Work {}
+
+        record FetchedPage(DownloadQueue.Task task, long start, PageBody body) implements Work {}
+
+        record ParsedPage(DownloadQueue.Task task, long start, PageWrite write, PageCache cache) implements Work {}
 
-        record Failure(DownloadQueue.TaskFailure task) implements TaskResult {}
+        record FetchedAsset(DownloadQueue.Task task, long start, Asset asset, boolean onDisk, Path download, FileDownload file) implements Work {}
     }
 }
@@ -0,0 +1,102 @@
+package pl.piotrmacha.lurker.domain;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory pre-check for {@link DownloadQueue#enqueue}.
+ * <p>
+ * A Bloom filter warm-started from {@code download_queue} and {@code download_queue_done} answers "definitely new"
+ * without touching the database. URLs enqueued by this process are remembered in a bounded cache until their task is
+ * done, at most for {@link #RECENT_WINDOW}, and are known duplicates. Everything else has to be checked against the
+ * database.
+ * <p>
+ * The filter is per process and only saves round-trips, the unique index on {@code download_queue.url} is what keeps
+ * URLs enqueued by other workers from being queued twice.
+ */
+@Slf4j
+@Component
+public class EnqueuedUrlFilter {
+    static final Duration RECENT_WINDOW = Duration.ofHours(1);
+    private static final int MIN_EXPECTED_URLS = 1_000_000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int RECENT_CACHE_SIZE = 100_000;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Cache<String, Boolean> recent = CacheBuilder.newBuilder()
+            .maximumSize(RECENT_CACHE_SIZE)
+            .expireAfterWrite(RECENT_WINDOW)
+            .build();
+    private volatile BloomFilter<CharSequence> seen;
+
+    public enum Verdict {
+        NEW,
+        DUPLICATE,
+        UNKNOWN
+    }
+
+    public Verdict check(String url) {
+        if (recent.getIfPresent(url) != null) {
+            return Verdict.DUPLICATE;
+        }
+        return filter().mightContain(url) ? Verdict.UNKNOWN : Verdict.NEW;
+    }
+
+    public void add(String url) {
+        filter().put(url);
+        recent.put(url, Boolean.TRUE);
+    }
+
+    /**
+     * Forgets the URL of a task that left this worker. If it is still queued, the insert finds it.
+     */
+    public void finished(String url) {
+        recent.invalidate(url);
+    }
+
+    public void reset() {
+        lock.lock();
+        try {
+            seen = null;
+            recent.invalidateAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private BloomFilter<CharSequence> filter() {
+        BloomFilter<CharSequence> filter = seen;
+        if (filter != null) {
+            return filter;
+        }
+        lock.lock();
+        try {
+            if (seen == null) {
+                seen = load();
+            }
+            return seen;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private BloomFilter<CharSequence> load() {
+        int queued = DownloadQueue.Task.dao().countAll();
+        int done = DownloadQueue.TaskDone.dao().countAll();
+        int expected = Math.max(MIN_EXPECTED_URLS, 2 * (queued + done));
+        BloomFilter<CharSequence> filter = BloomFilter.create(
+                Funnels.stringFunnel(StandardCharsets.UTF_8), expected, FALSE_POSITIVE_RATE);
+        DownloadQueue.Task.dao().forEachUrl(filter::put);
+        DownloadQueue.TaskDone.dao().forEachUrl(filter::put);
+        log.info("Loaded enqueued URL filter, queued: {}, done: {}", queued, done);
+        return filter;
+    }
+}
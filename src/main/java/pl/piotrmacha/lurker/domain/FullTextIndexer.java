@@ -0,0 +1,225 @@
+package pl.piotrmacha.lurker.domain;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+import pl.piotrmacha.lurker.jooq.Tables;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.jooq.impl.DSL.excluded;
+import static org.jooq.impl.DSL.row;
+import static org.jooq.impl.DSL.select;
+
+/**
+ * Keeps {@code post_fulltext} up to date off the crawl path. Saving a post only adds its id to
+ * {@code post_fulltext_dirty}, the indexer copies the content, topic title and author name of dirty posts in batches
+ * ordered by post id, so the tsvector columns and their GIN indexes are updated once per batch and not for every
+ * post write. Rows whose text didn't change aren't touched. Renaming a topic or an account marks its indexed posts
+ * dirty too, see {@link #markTopicsDirty} and {@link #markAuthorsDirty}.
+ * <p>
+ * While tasks are downloaded the indexer runs on a background thread, see {@link #start()}. The
+ * {@code rebuild-fulltext} command indexes everything that is left, or the whole archive with {@code --all}.
+ */
+@Slf4j
+@ShellComponent
+@RequiredArgsConstructor
+public class FullTextIndexer {
+    private static final int BATCH_SIZE = 500;
+    private static final Duration IDLE = Duration.ofSeconds(2);
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(1);
+    private static final List<String> INDEXES = List.of(
+            "post_fulltext_search_vector_english_idx",
+            "post_fulltext_search_vector_polish_idx");
+
+    private final DSLContext jooq;
+    private Thread worker;
+    private CountDownLatch stopped;
+
+    @ShellMethod(value = "Index posts for full text search", key = "rebuild-fulltext")
+    public String rebuildFullText(
+            @ShellOption(value = "--all", defaultValue = "false") boolean all,
+            @ShellOption(value = "--batch-size", defaultValue = "5000") int batchSize
+    ) {
+        long start = System.nanoTime();
+        if (all) {
+            int marked = jooq.insertInto(Tables.POST_FULLTEXT_DIRTY, Tables.POST_FULLTEXT_DIRTY.POST_ID)
+                    .select(select(Tables.POST.ID).from(Tables.POST))
+                    .onConflictDoNothing()
+                    .execute();
+            log.info("Marked {} posts for indexing", marked);
+        }
+
+        int indexed = drain(Math.max(1, batchSize), true);
+        // Batches land in the pending lists of the GIN indexes, merge them once instead of on every overflow
+        INDEXES.forEach(index -> jooq.select(DSL.field("gin_clean_pending_list({0}::regclass)", Long.class, DSL.val(index))).fetch());
+        jooq.execute("analyze " + Tables.POST_FULLTEXT.getName());
+
+        return "Indexed " + indexed + " posts in " + TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) + "s";
+    }
+
+    /**
+     * Starts indexing dirty posts in the background until {@link #stop()}.
+     */
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        stopped = new CountDownLatch(1);
+        worker = Thread.ofPlatform().daemon().name("fulltext-indexer").start(this::run);
+    }
+
+    /**
+     * Stops the background indexer and indexes the posts that are still dirty.
+     */
+    public synchronized void stop() throws InterruptedException {
+        if (worker == null) {
+            return;
+        }
+        stopped.countDown();
+        worker.join();
+        worker = null;
+        int indexed = drain(BATCH_SIZE, false);
+        log.info("Full text index is up to date, {} posts indexed on stop", indexed);
+    }
+
+    /**
+     * Indexes batches until stopped. A failed batch (a deadlock, no connection in the pool) is retried after a
+     * backoff growing up to {@link #MAX_BACKOFF}, its dirty rows stay in place.
+     */
+    private void run() {
+        Duration backoff = IDLE;
+        try {
+            while (stopped.getCount() > 0) {
+                try {
+                    if (indexBatch(BATCH_SIZE, false) == 0) {
+                        stopped.await(IDLE.toMillis(), TimeUnit.MILLISECONDS);
+                    }
+                    backoff = IDLE;
+                } catch (Exception e) {
+                    log.warn("Full text indexing failed, retrying in {}s", backoff.toSeconds(), e);
+                    stopped.await(backoff.toMillis(), TimeUnit.MILLISECONDS);
+                    backoff = backoff.multipliedBy(2).compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff.multipliedBy(2);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Marks the indexed posts of the topics dirty where their copy of the topic title is out of date.
+     */
+    static void markTopicsDirty(DSLContext tx, Collection<Long> topicIds) {
+        if (topicIds.isEmpty()) {
+            return;
+        }
+        tx.insertInto(Tables.POST_FULLTEXT_DIRTY, Tables.POST_FULLTEXT_DIRTY.POST_ID)
+                .select(select(Tables.POST_FULLTEXT.POST_ID)
+                        .from(Tables.POST_FULLTEXT)
+                        .join(Tables.TOPIC).on(Tables.TOPIC.ID.eq(Tables.POST_FULLTEXT.TOPIC_ID))
+                        .where(
+                                Tables.POST_FULLTEXT.TOPIC_ID.in(topicIds),
+                                Tables.POST_FULLTEXT.TOPIC.isDistinctFrom(DSL.coalesce(Tables.TOPIC.TITLE, ""))
+                        ))
+                .onConflictDoNothing()
+                .execute();
+    }
+
+    /**
+     * Marks the indexed posts of the accounts dirty where their copy of the username is out of date.
+     */
+    static void markAuthorsDirty(DSLContext tx, Collection<Long> accountIds) {
+        if (accountIds.isEmpty()) {
+            return;
+        }
+        tx.insertInto(Tables.POST_FULLTEXT_DIRTY, Tables.POST_FULLTEXT_DIRTY.POST_ID)
+                .select(select(Tables.POST_FULLTEXT.POST_ID)
+                        .from(Tables.POST_FULLTEXT)
+                        .join(Tables.ACCOUNT).on(Tables.ACCOUNT.ID.eq(Tables.POST_FULLTEXT.AUTHOR_ID))
+                        .where(
+                                Tables.POST_FULLTEXT.AUTHOR_ID.in(accountIds),
+                                Tables.POST_FULLTEXT.AUTHOR.isDistinctFrom(DSL.coalesce(Tables.ACCOUNT.USERNAME, ""))
+                        ))
+                .onConflictDoNothing()
+                .execute();
+    }
+
+    private int drain(int batchSize, boolean bulk) {
+        int total = 0;
+        int indexed;
+        while ((indexed = indexBatch(batchSize, bulk)) > 0) {
+            total += indexed;
+            log.debug("Indexed {} posts, {} so far", indexed, total);
+        }
+        return total;
+    }
+
+    /**
+     * Takes up to {@code batchSize} dirty posts and writes their full text rows in one transaction. Dirty rows
+     * locked by another indexer are skipped, and come back if the transaction fails.
+     */
+    private int indexBatch(int batchSize, boolean bulk) {
+        return jooq.transactionResult(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+            if (bulk) {
+                tx.execute("set local gin_pending_list_limit = '64MB'");
+            }
+
+            List<Long> postIds = tx.deleteFrom(Tables.POST_FULLTEXT_DIRTY)
+                    .where(Tables.POST_FULLTEXT_DIRTY.POST_ID.in(select(Tables.POST_FULLTEXT_DIRTY.POST_ID)
+                            .from(Tables.POST_FULLTEXT_DIRTY)
+                            .orderBy(Tables.POST_FULLTEXT_DIRTY.POST_ID)
+                            .limit(batchSize)
+                            .forUpdate()
+                            .skipLocked()))
+                    .returning(Tables.POST_FULLTEXT_DIRTY.POST_ID)
+                    .fetch(Tables.POST_FULLTEXT_DIRTY.POST_ID);
+            if (postIds.isEmpty()) {
+                return 0;
+            }
+
+            tx.insertInto(Tables.POST_FULLTEXT,
+                            Tables.POST_FULLTEXT.POST_ID,
+                            Tables.POST_FULLTEXT.TOPIC_ID,
+                            Tables.POST_FULLTEXT.AUTHOR_ID,
+                            Tables.POST_FULLTEXT.CONTENT,
+                            Tables.POST_FULLTEXT.TOPIC,
+                            Tables.POST_FULLTEXT.AUTHOR)
+                    .select(select(
+                            Tables.POST.ID,
+                            Tables.POST.TOPIC_ID,
+                            Tables.POST.AUTHOR_ID,
+                            Tables.POST.CONTENT,
+                            DSL.coalesce(Tables.TOPIC.TITLE, ""),
+                            DSL.coalesce(Tables.ACCOUNT.USERNAME, ""))
+                            .from(Tables.POST)
+                            .join(Tables.TOPIC).on(Tables.TOPIC.ID.eq(Tables.POST.TOPIC_ID))
+                            .join(Tables.ACCOUNT).on(Tables.ACCOUNT.ID.eq(Tables.POST.AUTHOR_ID))
+                            .where(Tables.POST.ID.in(postIds))
+                            .orderBy(Tables.POST.ID))
+                    .onConflict(Tables.POST_FULLTEXT.POST_ID)
+                    .doUpdate()
+                    .set(Tables.POST_FULLTEXT.TOPIC_ID, excluded(Tables.POST_FULLTEXT.TOPIC_ID))
+                    .set(Tables.POST_FULLTEXT.AUTHOR_ID, excluded(Tables.POST_FULLTEXT.AUTHOR_ID))
+                    .set(Tables.POST_FULLTEXT.CONTENT, excluded(Tables.POST_FULLTEXT.CONTENT))
+                    .set(Tables.POST_FULLTEXT.TOPIC, excluded(Tables.POST_FULLTEXT.TOPIC))
+                    .set(Tables.POST_FULLTEXT.AUTHOR, excluded(Tables.POST_FULLTEXT.AUTHOR))
+                    .where(row(Tables.POST_FULLTEXT.TOPIC_ID, Tables.POST_FULLTEXT.AUTHOR_ID, Tables.POST_FULLTEXT.CONTENT,
+                                    Tables.POST_FULLTEXT.TOPIC, Tables.POST_FULLTEXT.AUTHOR)
+                            .isDistinctFrom(excluded(Tables.POST_FULLTEXT.TOPIC_ID), excluded(Tables.POST_FULLTEXT.AUTHOR_ID),
+                                    excluded(Tables.POST_FULLTEXT.CONTENT), excluded(Tables.POST_FULLTEXT.TOPIC),
+                                    excluded(Tables.POST_FULLTEXT.AUTHOR)))
+                    .execute();
+            return postIds.size();
+        });
+    }
+}
@@ -0,0 +1,106 @@
+package pl.piotrmacha.lurker.domain;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.jvm.JvmGcMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
+import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Prometheus registry for {@link CrawlerMetrics}. With {@code LURKER_METRICS_PORT} set the metrics are served in the
+ * Prometheus text format on {@code http://localhost:<port>/metrics} for as long as the application runs, otherwise
+ * they can be dumped with the {@code metrics} command.
+ */
+@Slf4j
+@ShellComponent
+public class MetricsService {
+    private final PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    private HttpServer server;
+
+    public MetricsService(@Value("${LURKER_METRICS_PORT:0}") int port) throws IOException {
+        Metrics.addRegistry(registry);
+        new JvmMemoryMetrics().bindTo(registry);
+        new JvmGcMetrics().bindTo(registry);
+        new JvmThreadMetrics().bindTo(registry);
+        new ProcessorMetrics().bindTo(registry);
+        for (DownloadQueue.TaskType type : DownloadQueue.TaskType.values()) {
+            Gauge.builder("lurker.queue.depth", () -> queueSize(type))
+                    .description("Tasks waiting in the download queue")
+                    .tag("type", type.name().toLowerCase())
+                    .register(registry);
+        }
+        if (port > 0) {
+            serve(port);
+        }
+    }
+
+    @ShellMethod(value = "Print metrics in the Prometheus text format", key = "metrics")
+    public String metrics(
+            @ShellOption(value = "--file", defaultValue = "") String file
+    ) throws IOException {
+        String scrape = registry.scrape();
+        if (file == null || file.isBlank()) {
+            return scrape;
+        }
+        Files.writeString(Path.of(file), scrape);
+        return "Metrics written to " + file;
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private void serve(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        // The dispatcher thread inherits the daemon flag from the thread that starts the server, so it doesn't keep
+        // the JVM alive after a non-interactive command finishes.
+        Thread starter = Thread.ofPlatform().daemon().start(server::start);
+        try {
+            starter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Serving metrics on http://localhost:{}/metrics", port);
+    }
+
+    private static double queueSize(DownloadQueue.TaskType type) {
+        if (DownloadQueue.Task.dao() == null) {
+            return Double.NaN;
+        }
+        try {
+            return DownloadQueue.Task.dao().queueSize(Set.of(type));
+        } catch (Exception e) {
+            log.debug("Couldn't read queue depth", e);
+            return Double.NaN;
+        }
+    }
+}
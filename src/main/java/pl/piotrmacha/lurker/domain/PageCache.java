@@ -0,0 +1,99 @@
+package pl.piotrmacha.lurker.domain;
+
+import lombok.With;
+import org.jooq.DSLContext;
+import org.jooq.Table;
+import org.jooq.TableField;
+import org.springframework.stereotype.Component;
+import pl.piotrmacha.lurker.jooq.Tables;
+import pl.piotrmacha.lurker.jooq.tables.records.PageCacheRecord;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * HTTP validators and content hash of the last processed version of a page.
+ */
+@With
+public record PageCache(
+        String url,
+        String etag,
+        String lastModified,
+        String contentHash,
+        Instant fetchedAt
+) {
+    private static PageCacheDao dao;
+
+    public PageCache save() {
+        return dao.upsert(this.withFetchedAt(Instant.now()));
+    }
+
+    public boolean isSameContent(String hash) {
+        return contentHash != null && Objects.equals(contentHash, hash);
+    }
+
+    public static PageCacheDao dao() {
+        return dao;
+    }
+
+    public static PageCache of(String url, String etag, String lastModified, String contentHash) {
+        return new PageCache(url, etag, lastModified, contentHash, Instant.now());
+    }
+
+    @Component
+    public static class PageCacheDao extends AbstractDao<PageCache, PageCacheRecord, String> {
+        public PageCacheDao(DSLContext context) {
+            super(context);
+            PageCache.dao = this;
+        }
+
+        public PageCache upsert(PageCache entity) {
+            return timed("upsert", () -> context.insertInto(Tables.PAGE_CACHE)
+                    .set(Tables.PAGE_CACHE.URL, entity.url())
+                    .set(Tables.PAGE_CACHE.ETAG, entity.etag())
+                    .set(Tables.PAGE_CACHE.LAST_MODIFIED, entity.lastModified())
+                    .set(Tables.PAGE_CACHE.CONTENT_HASH, entity.contentHash())
+                    .set(Tables.PAGE_CACHE.FETCHED_AT, of(entity.fetchedAt()))
+                    .onConflict(Tables.PAGE_CACHE.URL)
+                    .doUpdate()
+                    .set(Tables.PAGE_CACHE.ETAG, entity.etag())
+                    .set(Tables.PAGE_CACHE.LAST_MODIFIED, entity.lastModified())
+                    .set(Tables.PAGE_CACHE.CONTENT_HASH, entity.contentHash())
+                    .set(Tables.PAGE_CACHE.FETCHED_AT, of(entity.fetchedAt()))
+                    .returning()
+                    .fetchOneInto(PageCache.class));
+        }
+
+        @Override
+        protected Class<PageCache> entity() {
+            return PageCache.class;
+        }
+
+        @Override
+        protected Table<PageCacheRecord> table() {
+            return Tables.PAGE_CACHE;
+        }
+
+        @Override
+        protected TableField<PageCacheRecord, String> idField() {
+            return Tables.PAGE_CACHE.URL;
+        }
+
+        @Override
+        protected BiFunction<RecordMapper<PageCacheRecord>, PageCache, RecordMapper<PageCacheRecord>> mapper() {
+            return (mapper, page) -> mapper
+                    .set(Tables.PAGE_CACHE.URL, page.url())
+                    .set(Tables.PAGE_CACHE.ETAG, page.etag())
+                    .set(Tables.PAGE_CACHE.LAST_MODIFIED, page.lastModified())
+                    .set(Tables.PAGE_CACHE.CONTENT_HASH, page.contentHash())
+                    .set(Tables.PAGE_CACHE.FETCHED_AT, of(page.fetchedAt()));
+        }
+
+        @Override
+        protected Function<PageCache, String> idMapper() {
+            return PageCache::url;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package pl.piotrmacha.lurker.domain;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * State of a single page being processed. A new context is created for every processed page, so processors
+ * themselves stay stateless and can be shared between worker threads.
+ */
+public record PageContext(DownloadService service, PageInfo page, Document document) implements PageProcessor {
+    @Override
+    public Stream<Element> select(Element element, String selector) {
+        return element.select(selector).stream();
+    }
+
+    @Override
+    public Stream<Element> select(String selector) {
+        return select(document, selector);
+    }
+
+    @Override
+    public Optional<Element> selectFirst(Element element, String selector) {
+        return Optional.ofNullable(element.selectFirst(selector));
+    }
+
+    @Override
+    public Optional<Element> selectFirst(String selector) {
+        return selectFirst(document, selector);
+    }
+
+    @Override
+    public void forEach(Element element, String selector, Consumer<Element> processor) {
+        select(element, selector).forEach(processor);
+    }
+
+    @Override
+    public void forEach(String selector, Consumer<Element> processor) {
+        forEach(document, selector, processor);
+    }
+}
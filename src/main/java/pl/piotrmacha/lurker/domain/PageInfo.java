@@ -1,27 +1,36 @@
 package pl.piotrmacha.lurker.domain;
 
 import java.net.URI;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public sealed interface PageInfo {
     URI uri();
 
+    default String url() {
+        return uri().toString();
+    }
+
+    default Uri asPageUri() {
+        return new Uri(uri());
+    }
+
+    default Uri.Board asBoard() {
+        return new Uri.Board(uri());
+    }
+
+    default Uri.Topic asTopic() {
+        return new Uri.Topic(uri());
+    }
+
     record Uri(URI uri) implements PageInfo {
         public Uri normalize() {
             String url = uri.toString();
-            url = url.replaceAll("#.*$", "");
-            url = url.replaceAll("\\?PHPSESSID=[^&]+(&)?", "?");
-            url = url.replaceAll("&PHPSESSID=[^&]+", "");
-            return new Uri(URI.create(url).normalize());
-        }
-
-        public Board asBoard() {
-            return new Board(uri);
+            String cleaned = SmfUrl.clean(url);
+            return new Uri(cleaned.equals(url) ? uri.normalize() : URI.create(cleaned).normalize());
         }
 
-        public Topic asTopic() {
-            return new Topic(uri);
+        @Override
+        public Uri asPageUri() {
+            return this;
         }
 
         public Post asPost() {
@@ -33,185 +42,180 @@ public sealed interface PageInfo {
             return uri.toString();
         }
 
-        public record Board(URI uri, int id, int offset) implements PageInfo {
-            static final Pattern pattern = Pattern.compile("board=([0-9]+)(\\.[0-9]+)?");
-
+        /**
+         * Board page, keeps the parsed URL so that the derived pages are built without parsing it again.
+         */
+        public record Board(SmfUrl key) implements PageInfo {
             public Board(URI uri) {
-                this(uri, getId(uri), getOffset(uri));
+                this(SmfUrl.board(uri.normalize().toString()));
+            }
+
+            @Override
+            public URI uri() {
+                return URI.create(key.url());
+            }
+
+            @Override
+            public String url() {
+                return key.url();
+            }
+
+            public int id() {
+                return key.id();
             }
 
-            public Uri asPageUri() {
-                return new Uri(URI.create(uri.toString()));
+            public int offset() {
+                return key.offset();
+            }
+
+            @Override
+            public Board asBoard() {
+                return this;
             }
 
             public Board normalize() {
-                String url = uri.toString();
-                url = url.replaceAll("#.*$", "");
-                url = url.replaceAll("\\?PHPSESSID=[^&]+(&)?", "?");
-                url = url.replaceAll("&PHPSESSID=[^&]+", "");
-                url = url.replaceAll("board=([0-9]+)\\.?([0-9]+)?", "board=$1");
-                return new Board(URI.create(url).normalize(), id, 0);
+                return new Board(key.withoutOffset());
             }
 
             public Board normalizeOffset() {
-                String url = uri.toString();
-                url = url.replaceAll("#.*$", "");
-                url = url.replaceAll("\\?PHPSESSID=[^&]+(&)?", "?");
-                url = url.replaceAll("&PHPSESSID=[^&]+", "");
-                url = url.replaceAll("board=([0-9]+)(\\.?[0-9]+)?", "board=$1$2");
-                return new Board(URI.create(url).normalize(), id, offset);
+                return new Board(key.withOffset());
             }
 
             static int getId(URI uri) {
-                Matcher matcher = pattern.matcher(uri.toString());
-                if (matcher.find()) {
-                    return Integer.parseInt(matcher.group(1));
-                } else {
-                    throw new IllegalArgumentException("Invalid board URI: " + uri);
-                }
+                return SmfUrl.board(uri.toString()).id();
             }
 
             static int getOffset(URI uri) {
-                Matcher matcher = pattern.matcher(uri.toString());
-                if (matcher.find()) {
-                    String page = matcher.group(2);
-                    return page != null ? Integer.parseInt(page.replace(".", "")) : 0;
-                } else {
-                    throw new IllegalArgumentException("Invalid board URI: " + uri);
-                }
+                return SmfUrl.board(uri.toString()).offset();
             }
 
             static boolean isBoard(URI uri) {
-                return pattern.matcher(uri.toString()).find();
+                return SmfUrl.isBoard(uri.toString());
             }
 
             @Override
             public String toString() {
-                return uri.toString();
+                return key.url();
             }
 
             public Board withOffset(int newOffset) {
                 if (newOffset < 0) {
                     throw new IllegalArgumentException("Offset must be greater than 0");
                 }
-                String newUrl = uri.toString().replaceAll("board=([0-9]+)(\\.?[0-9]+)?", "board=$1." + newOffset);
-                return new Board(URI.create(newUrl), id, newOffset);
+                return new Board(key.withOffset(newOffset));
             }
         }
 
-        public record Topic(URI uri, int id, int offset) implements PageInfo {
-            static final Pattern pattern = Pattern.compile("topic=([0-9]+)\\.?([0-9]+)?(\\.msg[0-9]+)?(;topicseen)?");
-
+        /**
+         * Topic page, keeps the parsed URL so that the derived pages are built without parsing it again.
+         */
+        public record Topic(SmfUrl key) implements PageInfo {
             public Topic(URI uri) {
-                this(uri, getId(uri), getOffset(uri));
+                this(SmfUrl.topic(uri.normalize().toString()));
             }
 
-            public Uri asPageUri() {
-                return new Uri(uri);
+            @Override
+            public URI uri() {
+                return URI.create(key.url());
+            }
+
+            @Override
+            public String url() {
+                return key.url();
+            }
+
+            public int id() {
+                return key.id();
+            }
+
+            public int offset() {
+                return key.offset();
+            }
+
+            @Override
+            public Topic asTopic() {
+                return this;
+            }
+
+            public Post asPost() {
+                return new Post(key);
             }
 
             public Topic normalize() {
-                String url = uri.toString();
-                url = url.replaceAll("#.*$", "");
-                url = url.replaceAll("\\?PHPSESSID=[^&]+(&)?", "?");
-                url = url.replaceAll("&PHPSESSID=[^&]+", "");
-                url = url.replaceAll("\\?topic=([0-9]+)\\.?([0-9]+)?(\\.msg[0-9]+)?(;topicseen)?", "?topic=$1");
-                return new Topic(URI.create(url).normalize(), id, 0);
+                return new Topic(key.withoutOffset());
             }
 
             public Topic normalizeOffset() {
-                String url = uri.toString();
-                url = url.replaceAll("#.*$", "");
-                url = url.replaceAll("\\?PHPSESSID=[^&]+(&)?", "?");
-                url = url.replaceAll("&PHPSESSID=[^&]+", "");
-                url = url.replaceAll("\\?topic=([0-9]+)(\\.?[0-9]+)?(\\.msg[0-9]+)?(;topicseen)?", "?topic=$1$2");
-                return new Topic(URI.create(url).normalize(), id, offset);
+                return new Topic(key.withOffset());
             }
 
             static int getId(URI uri) {
-                Matcher matcher = pattern.matcher(uri.toString());
-                if (matcher.find()) {
-                    return Integer.parseInt(matcher.group(1));
-                } else {
-                    throw new IllegalArgumentException("Invalid topic URI: " + uri);
-                }
+                return SmfUrl.topic(uri.toString()).id();
             }
 
             static int getOffset(URI uri) {
-                Matcher matcher = pattern.matcher(uri.toString());
-                if (matcher.find()) {
-                    String page = matcher.group(2);
-                    return page != null ? Integer.parseInt(page) : 0;
-                } else {
-                    throw new IllegalArgumentException("Invalid topic URI: " + uri);
-                }
+                return SmfUrl.topic(uri.toString()).offset();
             }
 
             static boolean isTopic(URI uri) {
-                return pattern.matcher(uri.toString()).find();
+                return SmfUrl.isTopic(uri.toString());
             }
 
             @Override
             public String toString() {
-                return uri.toString();
+                return key.url();
             }
 
             public Topic withOffset(int newOffset) {
                 if (newOffset < 0) {
                     throw new IllegalArgumentException("Offset must be greater than 0");
                 }
-                String newUrl = uri.toString().replaceAll(
-                        "topic=([0-9]+)\\.?([0-9]+)?(\\.msg[0-9]+)?(;topicseen)?", "topic=$1." + newOffset);
-                return new Topic(URI.create(newUrl), id, newOffset);
+                return new Topic(key.withOffset(newOffset));
             }
         }
 
-        public record Post(URI uri, int topicId, int postId) implements PageInfo {
-            static final Pattern pattern = Pattern.compile("\\?topic=([0-9]+)\\.?([0-9]+)?(\\.msg[0-9]+)?(;topicseen)?");
-
+        public record Post(SmfUrl key) implements PageInfo {
             public Post(URI uri) {
-                this(uri, getTopicId(uri), getPostId(uri));
+                this(SmfUrl.topic(uri.normalize().toString()));
             }
 
-            public Uri asPageUri() {
-                return new Uri(uri);
+            @Override
+            public URI uri() {
+                return URI.create(key.url());
+            }
+
+            @Override
+            public String url() {
+                return key.url();
+            }
+
+            public int topicId() {
+                return key.id();
+            }
+
+            public int postId() {
+                return key.msg();
             }
 
             public Post normalize() {
-                String url = uri.toString();
-                url = url.replaceAll("#.*$", "");
-                url = url.replaceAll("\\?PHPSESSID=[^&]+(&)?", "?");
-                url = url.replaceAll("&PHPSESSID=[^&]+", "");
-                url = url.replaceAll("\\?topic=([0-9]+)\\.msg([0-9]+)(;topicseen)?", "?topic=$1.msg$2");
-                return new Post(URI.create(url).normalize(), topicId, postId);
+                return new Post(key.post());
             }
 
             static int getTopicId(URI uri) {
-                Matcher matcher = pattern.matcher(uri.toString());
-                if (matcher.find()) {
-                    return Integer.parseInt(matcher.group(1));
-                } else {
-                    throw new IllegalArgumentException("Invalid topic URI: " + uri);
-                }
+                return SmfUrl.topic(uri.toString()).id();
             }
 
             static int getPostId(URI uri) {
-                Matcher matcher = pattern.matcher(uri.toString());
-                if (matcher.find()) {
-                    String page = matcher.group(3);
-                    return page != null ? Integer.parseInt(page) : 0;
-                } else {
-                    throw new IllegalArgumentException("Invalid topic URI: " + uri);
-                }
+                return SmfUrl.topic(uri.toString()).msg();
             }
 
             static boolean isPost(URI uri) {
-                return pattern.matcher(uri.toString()).find();
+                return SmfUrl.isTopic(uri.toString());
             }
 
             @Override
             public String toString() {
-                return uri.toString();
+                return key.url();
             }
         }
     }
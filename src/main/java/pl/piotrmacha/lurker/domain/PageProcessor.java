@@ -1,14 +1,19 @@
 package pl.piotrmacha.lurker.domain;
 
+import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 
 import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
-public interface PageProcessor extends PageProcessorFn {
+public interface PageProcessor {
     DownloadService service();
 
+    PageInfo page();
+
+    Document document();
+
     Stream<Element> select(Element root, String selector);
 
     Stream<Element> select(String selector);
@@ -0,0 +1,10 @@
+package pl.piotrmacha.lurker.domain;
+
+/**
+ * Database part of processing a page, produced by {@link AbstractPageProcessor#parse}. It holds only the data read
+ * from the document, so the document can be dropped before the write runs.
+ */
+@FunctionalInterface
+public interface PageWrite {
+    void persist();
+}
@@ -7,16 +7,18 @@ import lombok.experimental.Accessors;
 import org.jooq.*;
 import org.jooq.exception.IntegrityConstraintViolationException;
 import org.jooq.exception.NoDataFoundException;
+import org.jooq.impl.DSL;
 import org.springframework.stereotype.Component;
 import pl.piotrmacha.lurker.jooq.Tables;
 import pl.piotrmacha.lurker.jooq.tables.records.PostRecord;
 
 import java.time.Instant;
-import java.util.Optional;
+import java.util.*;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.stream.Stream;
 
+import static org.jooq.impl.DSL.excluded;
 import static org.jooq.impl.DSL.field;
 
 @With
@@ -48,29 +50,65 @@ public record Post(
         return of(null, oid, url, authorId, topicId, content, createdAt, Instant.now());
     }
 
-    record Attachment(Long postId, Long assetId) {
-        public static Attachment of(Long postId, Long assetId) {
-            return new Attachment(postId, assetId);
+    public static class Batch {
+        private final Topic topic;
+        private final Map<String, Author> authors = new LinkedHashMap<>();
+        private final List<Entry> entries = new ArrayList<>();
+        private String topicAuthorOid;
+
+        public Batch(Topic topic) {
+            this.topic = topic;
+        }
+
+        public record Author(String oid, String url, String username, String avatarUrl) {}
+
+        public record Entry(String oid, String url, String authorOid, String content, Instant createdAt, List<String> imageUrls) {}
+
+        public Batch addAuthor(Author author) {
+            authors.merge(author.oid(), author, (existing, added) -> added.avatarUrl() != null ? added : existing);
+            return this;
+        }
+
+        public Batch addPost(Entry entry) {
+            entries.add(entry);
+            return this;
+        }
+
+        public Batch withTopicAuthor(String authorOid) {
+            this.topicAuthorOid = authorOid;
+            return this;
+        }
+
+        public Topic topic() {
+            return topic;
+        }
+
+        public Collection<Author> authors() {
+            return authors.values();
+        }
+
+        public List<Entry> entries() {
+            return entries;
+        }
+
+        public Optional<String> topicAuthorOid() {
+            return Optional.ofNullable(topicAuthorOid);
+        }
+
+        public boolean isEmpty() {
+            return entries.isEmpty();
         }
     }
 
-    record FullText(
-            Long postId,
-            Long topicId,
-            Long authorId,
-            String content,
-            String topic,
-            String author
-    ) {
-        public static FullText of(Post post) {
-            return new FullText(
-                    post.id(),
-                    post.topicId(),
-                    post.authorId(),
-                    post.content(),
-                    null,
-                    null
-            );
+    /**
+     * Result of {@link PostDao#saveBatch}: ids of the saved posts by their oid, and the URLs of the asset download
+     * tasks queued with them.
+     */
+    public record SavedBatch(Map<String, Long> postIds, List<String> queuedUrls) {}
+
+    record Attachment(Long postId, Long assetId) {
+        public static Attachment of(Long postId, Long assetId) {
+            return new Attachment(postId, assetId);
         }
     }
 
@@ -82,24 +120,82 @@ public record Post(
         @Getter
         @Accessors(fluent = true)
         private final String tokenizer;
+
+        Field<Object> vector() {
+            return switch (this) {
+                case ENGLISH -> Tables.POST_FULLTEXT.SEARCH_VECTOR_ENGLISH;
+                case POLISH -> Tables.POST_FULLTEXT.SEARCH_VECTOR_POLISH;
+            };
+        }
+    }
+
+    /**
+     * Full text query in the {@code websearch_to_tsquery} syntax ({@code "quoted phrase"}, {@code or},
+     * {@code -excluded}). Filters are optional, {@code to} is exclusive.
+     */
+    public record SearchQuery(
+            String text,
+            SearchLanguage language,
+            String boardOid,
+            String topicOid,
+            String author,
+            Instant from,
+            Instant to,
+            SearchCursor after,
+            int limit
+    ) {}
+
+    /**
+     * Position after the last result of a page: results are ordered by rank and then post id, both descending.
+     */
+    public record SearchCursor(float rank, long postId) {
+        public static SearchCursor parse(String cursor) {
+            String[] parts = cursor.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new SearchCursor(Float.parseFloat(parts[0]), Long.parseLong(parts[1]));
+        }
+
+        @Override
+        public String toString() {
+            return rank + ":" + postId;
+        }
+    }
+
+    public record SearchResult(
+            Long postId,
+            String url,
+            String topic,
+            String author,
+            Instant createdAt,
+            float rank,
+            String snippet
+    ) {
+        public SearchCursor cursor() {
+            return new SearchCursor(rank, postId);
+        }
     }
 
     @Component
     public static class PostDao extends AbstractDao<Post, PostRecord, Long> {
         private final Topic.TopicDao topicDao;
         private final Account.AccountDao accountDao;
+        private final Asset.AssetDao assetDao;
 
-        public PostDao(DSLContext context, Topic.TopicDao topicDao, Account.AccountDao accountDao) {
+        public PostDao(DSLContext context, Topic.TopicDao topicDao, Account.AccountDao accountDao, Asset.AssetDao assetDao) {
             super(context);
             this.topicDao = topicDao;
             this.accountDao = accountDao;
+            this.assetDao = assetDao;
             dao = this;
         }
 
         @Override
         public Post save(Post entity) {
             Post post = super.save(entity);
-            return saveFullText(post);
+            markDirty(context, List.of(post.id()));
+            return post;
         }
 
         public Optional<Post> findByOid(String oid) {
@@ -118,24 +214,214 @@ public record Post(
             return super.create(entity);
         }
 
-        public Stream<Post> search(String query, SearchLanguage language) {
-            String tokenizer = language.tokenizer();
-            return context.select(
-                            Tables.POST.ID,
-                            Tables.POST.OID,
-                            Tables.POST.URL,
-                            Tables.POST.AUTHOR_ID,
-                            Tables.POST.TOPIC_ID,
-                            Tables.POST.CONTENT,
-                            Tables.POST.CREATED_AT,
-                            Tables.POST.LAST_UPDATE,
-                            field("ts_rank_cd(to_tsvector('" + tokenizer + "', content), to_tsquery('" + tokenizer + "', 'środek'))", "score"))
-                    .from(Tables.POST_FULLTEXT
-                            .join(Tables.POST).on(
-                                    Tables.POST.ID.eq(Tables.POST_FULLTEXT.POST_ID)))
-                    .where("to_tsvector('" + tokenizer + "', content) @@ websearch_to_tsquery('" + tokenizer + "', ?)", query)
-                    .stream()
-                    .map(r -> r.into(Post.class));
+        /**
+         * Finds a page of posts matching the query, best first. Matching uses the stored tsvector column of the
+         * language, which has a GIN index, and ranks with {@code ts_rank_cd} normalized by the document length.
+         * Snippets are computed with {@code ts_headline} for the returned page only, matches are wrapped in
+         * {@code «»}.
+         */
+        public List<SearchResult> search(SearchQuery query) {
+            Field<Object> vector = query.language().vector();
+            Field<Object> tsQuery = field("websearch_to_tsquery({0}::regconfig, {1})", Object.class,
+                    DSL.inline(query.language().tokenizer()), DSL.val(query.text()));
+            Field<Float> rank = field("ts_rank_cd({0}, {1}, 1)", Float.class, vector, tsQuery);
+
+            List<Condition> conditions = new ArrayList<>();
+            conditions.add(DSL.condition("{0} @@ {1}", vector, tsQuery));
+            if (query.topicOid() != null) {
+                conditions.add(Tables.POST_FULLTEXT.TOPIC_ID.in(DSL.select(Tables.TOPIC.ID)
+                        .from(Tables.TOPIC)
+                        .where(Tables.TOPIC.OID.eq(query.topicOid()))));
+            }
+            if (query.boardOid() != null) {
+                conditions.add(Tables.POST_FULLTEXT.TOPIC_ID.in(DSL.select(Tables.TOPIC.ID)
+                        .from(Tables.TOPIC)
+                        .join(Tables.BOARD).on(Tables.BOARD.ID.eq(Tables.TOPIC.BOARD_ID))
+                        .where(Tables.BOARD.OID.eq(query.boardOid()))));
+            }
+            if (query.author() != null) {
+                conditions.add(Tables.POST_FULLTEXT.AUTHOR_ID.in(DSL.select(Tables.ACCOUNT.ID)
+                        .from(Tables.ACCOUNT)
+                        .where(DSL.lower(Tables.ACCOUNT.USERNAME).eq(query.author().toLowerCase()))));
+            }
+            if (query.from() != null) {
+                conditions.add(Tables.POST.CREATED_AT.ge(of(query.from())));
+            }
+            if (query.to() != null) {
+                conditions.add(Tables.POST.CREATED_AT.lt(of(query.to())));
+            }
+            if (query.after() != null) {
+                conditions.add(DSL.row(rank, Tables.POST_FULLTEXT.POST_ID)
+                        .lt(query.after().rank(), query.after().postId()));
+            }
+
+            SelectJoinStep<Record2<Long, Float>> matches = context.select(Tables.POST_FULLTEXT.POST_ID, rank.as("rank"))
+                    .from(Tables.POST_FULLTEXT);
+            if (query.from() != null || query.to() != null) {
+                matches = matches.join(Tables.POST).on(Tables.POST.ID.eq(Tables.POST_FULLTEXT.POST_ID));
+            }
+            Table<Record2<Long, Float>> page = matches.where(conditions)
+                    .orderBy(rank.desc(), Tables.POST_FULLTEXT.POST_ID.desc())
+                    .limit(query.limit())
+                    .asTable("page");
+
+            Field<Long> postId = page.field(Tables.POST_FULLTEXT.POST_ID);
+            Field<Float> pageRank = page.field("rank", Float.class);
+            Field<String> headline = field("ts_headline({0}::regconfig, {1}, {2}, {3})", String.class,
+                    DSL.inline(query.language().tokenizer()), Tables.POST.CONTENT, tsQuery,
+                    DSL.inline("MaxFragments=2, MinWords=8, MaxWords=24, StartSel=«, StopSel=»"));
+
+            return timed("search", () -> context.select(postId, Tables.POST.URL, Tables.TOPIC.TITLE,
+                            Tables.ACCOUNT.USERNAME, Tables.POST.CREATED_AT, pageRank, headline)
+                    .from(page)
+                    .join(Tables.POST).on(Tables.POST.ID.eq(postId))
+                    .leftJoin(Tables.TOPIC).on(Tables.TOPIC.ID.eq(Tables.POST.TOPIC_ID))
+                    .leftJoin(Tables.ACCOUNT).on(Tables.ACCOUNT.ID.eq(Tables.POST.AUTHOR_ID))
+                    .orderBy(pageRank.desc(), postId.desc())
+                    .fetch(record -> new SearchResult(
+                            record.value1(),
+                            record.value2(),
+                            record.value3(),
+                            record.value4(),
+                            record.value5() != null ? record.value5().toInstant() : null,
+                            record.value6(),
+                            record.value7())));
+        }
+
+        /**
+         * Writes all posts of a topic page together with their authors and attachments in a single transaction,
+         * using multi-row upserts instead of per-entity lookups. Rows that didn't change aren't written, and only new
+         * or changed posts are queued for full text indexing. Download tasks of new assets are queued in the same
+         * transaction, pass the returned URLs to {@link DownloadQueue#enqueued} once it commits.
+         *
+         * @return the saved posts and the URLs of the queued asset tasks
+         */
+        public SavedBatch saveBatch(Batch batch) {
+            if (batch.isEmpty()) {
+                return new SavedBatch(Map.of(), List.of());
+            }
+
+            Topic topic = batch.topic();
+            List<Asset> createdAssets = new ArrayList<>();
+            List<String> queuedUrls = new ArrayList<>();
+            Map<String, Long> postIds = timed("saveBatch", () -> context.transactionResult(configuration -> {
+                DSLContext tx = DSL.using(configuration);
+                Instant now = Instant.now();
+
+                Map<String, String> assetNames = new TreeMap<>();
+                batch.authors().stream()
+                        .filter(author -> author.avatarUrl() != null)
+                        .forEach(author -> assetNames.putIfAbsent(author.avatarUrl(), "avatar/" + author.oid()));
+                batch.entries().forEach(entry -> {
+                    for (int i = 0; i < entry.imageUrls().size(); i++) {
+                        assetNames.putIfAbsent(entry.imageUrls().get(i), "topic/" + topic.oid() + "/post-" + entry.oid() + "/" + i);
+                    }
+                });
+                Map<String, Long> assetIds = assetDao.createMissing(tx, assetNames, createdAssets::add);
+                queuedUrls.addAll(DownloadQueue.Task.dao().insertAll(tx, createdAssets.stream()
+                        .map(asset -> DownloadQueue.Task.of(DownloadQueue.TaskType.ASSET, asset.url(), asset.id()))
+                        .toList()));
+
+                Map<String, Long> accountIds = accountDao.upsertAll(tx, batch.authors().stream()
+                        .map(author -> Account.of(author.oid(), author.url(), author.username(),
+                                        author.avatarUrl() != null ? assetIds.get(author.avatarUrl()) : null)
+                                .withLastUpdate(now))
+                        .toList());
+
+                batch.topicAuthorOid()
+                        .map(accountIds::get)
+                        .ifPresent(authorId -> topicDao.updateAuthor(tx, topic.id(), authorId));
+
+                List<Long> writtenIds = new ArrayList<>();
+                Map<String, Long> ids = upsertAll(tx, batch.entries().stream()
+                        .map(entry -> Post.of(entry.oid(), entry.url(), accountIds.get(entry.authorOid()), topic.id(),
+                                        entry.content(), entry.createdAt())
+                                .withLastUpdate(now))
+                        .toList(), writtenIds::add);
+
+                linkAssets(tx, batch.entries().stream()
+                        .flatMap(entry -> entry.imageUrls().stream()
+                                .map(url -> Attachment.of(ids.get(entry.oid()), assetIds.get(url))))
+                        .distinct()
+                        .toList());
+
+                markDirty(tx, writtenIds);
+
+                return ids;
+            }));
+
+            return new SavedBatch(postIds, queuedUrls);
+        }
+
+        private Map<String, Long> upsertAll(DSLContext tx, List<Post> posts, Consumer<Long> written) {
+            var insert = tx.insertInto(Tables.POST,
+                    Tables.POST.OID,
+                    Tables.POST.URL,
+                    Tables.POST.AUTHOR_ID,
+                    Tables.POST.TOPIC_ID,
+                    Tables.POST.CONTENT,
+                    Tables.POST.CREATED_AT,
+                    Tables.POST.LAST_UPDATE);
+            for (Post post : posts.stream().sorted(java.util.Comparator.comparing(Post::oid)).toList()) {
+                insert = insert.values(post.oid(), post.url(), post.authorId(), post.topicId(), post.content(),
+                        of(post.createdAt()), of(post.lastUpdate()));
+            }
+
+            Map<String, Long> ids = new HashMap<>();
+            insert.onConflict(Tables.POST.OID)
+                    .doUpdate()
+                    .set(Tables.POST.AUTHOR_ID, excluded(Tables.POST.AUTHOR_ID))
+                    .set(Tables.POST.TOPIC_ID, excluded(Tables.POST.TOPIC_ID))
+                    .set(Tables.POST.CONTENT, excluded(Tables.POST.CONTENT))
+                    .set(Tables.POST.LAST_UPDATE, excluded(Tables.POST.LAST_UPDATE))
+                    .where(DSL.row(Tables.POST.AUTHOR_ID, Tables.POST.TOPIC_ID, Tables.POST.CONTENT)
+                            .isDistinctFrom(excluded(Tables.POST.AUTHOR_ID), excluded(Tables.POST.TOPIC_ID), excluded(Tables.POST.CONTENT)))
+                    .returning(Tables.POST.ID, Tables.POST.OID)
+                    .fetch()
+                    .forEach(record -> {
+                        ids.put(record.getOid(), record.getId());
+                        written.accept(record.getId());
+                    });
+
+            // Posts that didn't change aren't returned by the upsert
+            List<String> unchanged = posts.stream().map(Post::oid).filter(oid -> !ids.containsKey(oid)).toList();
+            if (!unchanged.isEmpty()) {
+                tx.select(Tables.POST.ID, Tables.POST.OID)
+                        .from(Tables.POST)
+                        .where(Tables.POST.OID.in(unchanged))
+                        .fetch()
+                        .forEach(record -> ids.put(record.value2(), record.value1()));
+            }
+            CrawlerMetrics.writes(getClass().getSimpleName(), posts.size() - unchanged.size(), unchanged.size());
+            return ids;
+        }
+
+        private void linkAssets(DSLContext tx, List<Attachment> attachments) {
+            if (attachments.isEmpty()) {
+                return;
+            }
+
+            var insert = tx.insertInto(Tables.POST_ATTACHMENT, Tables.POST_ATTACHMENT.POST_ID, Tables.POST_ATTACHMENT.ASSET_ID);
+            for (Attachment attachment : attachments) {
+                insert = insert.values(attachment.postId(), attachment.assetId());
+            }
+            insert.onConflictDoNothing().execute();
+        }
+
+        /**
+         * Queues posts for the {@link FullTextIndexer}, so saving a post doesn't wait for the tsvector columns and
+         * their GIN indexes.
+         */
+        private void markDirty(DSLContext tx, Collection<Long> postIds) {
+            if (postIds.isEmpty()) {
+                return;
+            }
+
+            var insert = tx.insertInto(Tables.POST_FULLTEXT_DIRTY, Tables.POST_FULLTEXT_DIRTY.POST_ID);
+            for (Long postId : postIds.stream().sorted().toList()) {
+                insert = insert.values(postId);
+            }
+            insert.onConflictDoNothing().execute();
         }
 
         public Post linkAsset(Post post, Long assetId) {
@@ -157,35 +443,6 @@ public record Post(
             return post;
         }
 
-        public Post saveFullText(Post post) {
-            Topic topic = topicDao.find(post.topicId()).orElse(Topic.of("", "", null));
-            Account account = accountDao.find(post.authorId()).orElse(Account.of("", "", null));
-
-            try {
-                context.select(field("1"))
-                        .from(Tables.POST_FULLTEXT)
-                        .where(Tables.POST_FULLTEXT.POST_ID.eq(post.id()))
-                        .fetch();
-                context.update(Tables.POST_FULLTEXT)
-                        .set(Tables.POST_FULLTEXT.CONTENT, post.content())
-                        .set(Tables.POST_FULLTEXT.TOPIC, topic.title())
-                        .set(Tables.POST_FULLTEXT.AUTHOR, account.username())
-                        .where(Tables.POST_FULLTEXT.POST_ID.eq(post.id()))
-                        .execute();
-            } catch (NoDataFoundException e) {
-                context.insertInto(Tables.POST_FULLTEXT)
-                        .set(Tables.POST_FULLTEXT.POST_ID, post.id())
-                        .set(Tables.POST_FULLTEXT.TOPIC_ID, post.topicId())
-                        .set(Tables.POST_FULLTEXT.AUTHOR_ID, post.authorId())
-                        .set(Tables.POST_FULLTEXT.CONTENT, post.content())
-                        .set(Tables.POST_FULLTEXT.TOPIC, topic.title())
-                        .set(Tables.POST_FULLTEXT.AUTHOR, account.username())
-                        .execute();
-            }
-
-            return post;
-        }
-
         @Override
         protected Class<Post> entity() {
             return Post.class;
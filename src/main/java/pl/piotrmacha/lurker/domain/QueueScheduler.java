@@ -0,0 +1,174 @@
+package pl.piotrmacha.lurker.domain;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Moves tasks from {@code download_queue_scheduled} into the download queue when they are due. Recurring tasks, like
+ * the recent posts pages or hot topics, stay scheduled and move to their next run.
+ * <p>
+ * Every minute the scheduled tasks due within the next two minutes are loaded into a {@link TimerWheel} that ticks
+ * every second, so a task is promoted within about a second of its time without polling the table. Due tasks are
+ * promoted in batches, see {@link DownloadQueue.TaskScheduled.TaskScheduledDao#promote}. Several processes can run
+ * the scheduler at the same time, a task is promoted by only one of them.
+ */
+@Slf4j
+@ShellComponent
+@RequiredArgsConstructor
+public class QueueScheduler {
+    private static final Duration TICK = Duration.ofSeconds(1);
+    private static final int SLOTS = 512;
+    private static final Duration LOAD_INTERVAL = Duration.ofMinutes(1);
+    private static final int LOAD_LIMIT = 10_000;
+    private static final int PROMOTE_BATCH_SIZE = 500;
+
+    private final DownloadQueue queue;
+    private final Set<Long> pending = new HashSet<>();
+    private TimerWheel<Long> wheel;
+    private Thread worker;
+    private CountDownLatch stopped;
+
+    @ShellMethod(value = "Schedule a task, once or repeatedly", key = "schedule")
+    public String schedule(
+            @ShellOption(value = "--url") URI url,
+            @ShellOption(value = "--type", defaultValue = "TOPIC") DownloadQueue.TaskType type,
+            @ShellOption(value = "--every-minutes", defaultValue = "0") long everyMinutes,
+            @ShellOption(value = "--delay-minutes", defaultValue = "0") long delayMinutes,
+            @ShellOption(value = "--priority", defaultValue = "") String priority
+    ) {
+        PageInfo.Uri page = new PageInfo.Uri(url);
+        String normalized = type.normalize(page).url();
+        Long entityId = type == DownloadQueue.TaskType.TOPIC ? (long) page.asTopic().id()
+                : type == DownloadQueue.TaskType.BOARD ? (long) page.asBoard().id()
+                : null;
+        DownloadQueue.TaskScheduled task = DownloadQueue.TaskScheduled.dao().upsert(DownloadQueue.TaskScheduled.of(
+                type,
+                normalized,
+                entityId,
+                Instant.now().plus(Duration.ofMinutes(delayMinutes)),
+                Duration.ofMinutes(everyMinutes),
+                priority == null || priority.isBlank() ? type.priority(page) : DownloadQueue.Priority.valueOf(priority.toUpperCase())));
+        return describe(task);
+    }
+
+    @ShellMethod(value = "Schedule the recent posts pages to be processed repeatedly", key = "schedule-new-posts")
+    public String scheduleNewPosts(
+            @ShellOption(value = "--uri", defaultValue = "https://themodders.org/index.php?action=recent") URI uri,
+            @ShellOption(value = "--pages", defaultValue = "10") int pages,
+            @ShellOption(value = "--every-minutes", defaultValue = "10") long everyMinutes
+    ) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < pages * 10; i += 10) {
+            result.append(schedule(URI.create(uri + ";start=" + i), DownloadQueue.TaskType.RECENT, everyMinutes, 0, ""))
+                    .append('\n');
+        }
+        return result.toString();
+    }
+
+    @ShellMethod(value = "Remove a scheduled task", key = "unschedule")
+    public String unschedule(
+            @ShellOption(value = "--url") URI url,
+            @ShellOption(value = "--type", defaultValue = "TOPIC") DownloadQueue.TaskType type
+    ) {
+        String normalized = type.normalize(new PageInfo.Uri(url)).url();
+        int removed = DownloadQueue.TaskScheduled.dao().deleteByUrl(normalized);
+        return removed > 0 ? "Removed " + normalized : "Not scheduled: " + normalized;
+    }
+
+    @ShellMethod(value = "List scheduled tasks", key = "list-schedules")
+    public String listSchedules() {
+        try (var tasks = DownloadQueue.TaskScheduled.dao().findAll()) {
+            return tasks.map(QueueScheduler::describe).collect(Collectors.joining("\n"));
+        }
+    }
+
+    /**
+     * Starts promoting scheduled tasks in the background until {@link #stop()}.
+     */
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        wheel = new TimerWheel<>(TICK, SLOTS, Instant.now());
+        pending.clear();
+        stopped = new CountDownLatch(1);
+        worker = Thread.ofPlatform().daemon().name("queue-scheduler").start(this::run);
+        log.info("Scheduler started");
+    }
+
+    public synchronized void stop() throws InterruptedException {
+        if (worker == null) {
+            return;
+        }
+        stopped.countDown();
+        worker.join();
+        worker = null;
+    }
+
+    private void run() {
+        Instant nextLoad = Instant.now();
+        try {
+            do {
+                try {
+                    Instant now = Instant.now();
+                    if (!now.isBefore(nextLoad)) {
+                        load(now.plus(LOAD_INTERVAL.multipliedBy(2)));
+                        nextLoad = now.plus(LOAD_INTERVAL);
+                    }
+                    List<Long> due = wheel.advance(now);
+                    for (int i = 0; i < due.size(); i += PROMOTE_BATCH_SIZE) {
+                        promote(due.subList(i, Math.min(due.size(), i + PROMOTE_BATCH_SIZE)));
+                    }
+                } catch (Exception e) {
+                    log.warn("Couldn't promote scheduled tasks", e);
+                }
+            } while (!stopped.await(TICK.toMillis(), TimeUnit.MILLISECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void load(Instant until) {
+        int loaded = 0;
+        for (DownloadQueue.TaskScheduled task : DownloadQueue.TaskScheduled.dao().findDue(until, LOAD_LIMIT)) {
+            if (pending.add(task.id())) {
+                wheel.schedule(task.id(), task.scheduledAt());
+                loaded++;
+            }
+        }
+        log.debug("Loaded {} scheduled tasks, {} waiting", loaded, wheel.size());
+    }
+
+    private void promote(List<Long> ids) {
+        pending.removeAll(ids);
+        List<DownloadQueue.TaskScheduled> promoted = DownloadQueue.TaskScheduled.dao().promote(ids);
+        if (promoted.isEmpty()) {
+            return;
+        }
+        log.info("Promoted {} scheduled tasks", promoted.size());
+        queue.enqueued(promoted.stream().map(DownloadQueue.TaskScheduled::url).toList());
+        // The next run of a recurring task can come before the next load
+        promoted.stream()
+                .filter(task -> task.repeatEvery().isPresent())
+                .filter(task -> pending.add(task.id()))
+                .forEach(task -> wheel.schedule(task.id(), task.scheduledAt()));
+    }
+
+    private static String describe(DownloadQueue.TaskScheduled task) {
+        return task.type() + " " + task.url() + " at " + task.scheduledAt()
+                + task.repeatEvery().map(every -> ", every " + every.toMinutes() + " min").orElse("");
+    }
+}
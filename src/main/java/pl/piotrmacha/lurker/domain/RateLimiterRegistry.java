@@ -0,0 +1,167 @@
+package pl.piotrmacha.lurker.domain;
+
+import com.google.common.util.concurrent.RateLimiter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Rate limiters keyed by host, with separate budgets for pages and assets.
+ * <p>
+ * Hosts that serve pages (the forum) have a single budget: assets fetched from such a host are counted against the
+ * page budget, so the forum never gets more than {@code pageRps}. Every other host gets its own asset budget.
+ * <p>
+ * In adaptive mode the limiters use AIMD: the rate is halved on 429/503, server errors, timeouts or slow responses,
+ * and grows back linearly on healthy responses, never above the configured budget.
+ * <p>
+ * When several workers crawl together, every budget is split evenly between them, see {@link #share(int)}.
+ */
+@Slf4j
+public class RateLimiterRegistry {
+    private static final Duration SLOW_RESPONSE = Duration.ofSeconds(5);
+    private static final Duration DECREASE_COOLDOWN = Duration.ofSeconds(2);
+    private static final double MIN_RATE_FRACTION = 0.05;
+    private static final double INCREASE_FRACTION = 0.05;
+
+    private final double pageRps;
+    private final double assetRps;
+    private final boolean adaptive;
+    private final Set<String> pageHosts = ConcurrentHashMap.newKeySet();
+    private final Map<Key, Limiter> limiters = new ConcurrentHashMap<>();
+    private volatile int workers = 1;
+
+    public enum Kind {
+        PAGE,
+        ASSET
+    }
+
+    public RateLimiterRegistry(double pageRps, double assetRps, boolean adaptive) {
+        this.pageRps = pageRps;
+        this.assetRps = assetRps;
+        this.adaptive = adaptive;
+    }
+
+    public void registerPageHost(URI uri) {
+        pageHosts.add(host(uri));
+    }
+
+    /**
+     * Blocks until a request to the given URI is allowed.
+     *
+     * @return time spent waiting, in seconds
+     */
+    public double acquire(URI uri, Kind kind) {
+        if (kind == Kind.PAGE) {
+            registerPageHost(uri);
+        }
+        return limiter(uri, kind).rateLimiter.acquire();
+    }
+
+    public void onResponse(URI uri, Kind kind, int statusCode, Duration latency) {
+        if (!adaptive) {
+            return;
+        }
+        Limiter limiter = limiter(uri, kind);
+        if (statusCode == 429 || statusCode >= 500 || latency.compareTo(SLOW_RESPONSE) > 0) {
+            limiter.decrease();
+        } else {
+            limiter.increase();
+        }
+    }
+
+    public void onError(URI uri, Kind kind) {
+        if (adaptive) {
+            limiter(uri, kind).decrease();
+        }
+    }
+
+    /**
+     * Limits this process to its share of the budgets when {@code workers} processes crawl at the same time.
+     */
+    public void share(int workers) {
+        if (workers == this.workers) {
+            return;
+        }
+        log.info("{} workers running, using 1/{} of the rate limits", workers, workers);
+        this.workers = workers;
+        limiters.values().forEach(limiter -> limiter.share(workers));
+    }
+
+    private Limiter limiter(URI uri, Kind kind) {
+        String host = host(uri);
+        Kind budget = kind == Kind.ASSET && pageHosts.contains(host) ? Kind.PAGE : kind;
+        return limiters.computeIfAbsent(new Key(host, budget), key -> new Limiter(key, key.kind() == Kind.PAGE ? pageRps : assetRps, workers));
+    }
+
+    private static String host(URI uri) {
+        String host = uri.getHost() == null ? "" : uri.getHost().toLowerCase(Locale.ROOT);
+        return host.startsWith("www.") ? host.substring(4) : host;
+    }
+
+    private record Key(String host, Kind kind) {}
+
+    private static class Limiter {
+        private final Key key;
+        private final double budget;
+        private final RateLimiter rateLimiter;
+        private final ReentrantLock lock = new ReentrantLock();
+        private double maxRate;
+        private double rate;
+        private long lastDecrease = 0;
+
+        Limiter(Key key, double budget, int workers) {
+            this.key = key;
+            this.budget = budget;
+            this.maxRate = budget / workers;
+            this.rate = maxRate;
+            this.rateLimiter = RateLimiter.create(maxRate);
+        }
+
+        void share(int workers) {
+            lock.lock();
+            try {
+                double share = budget / workers;
+                rate = rate * share / maxRate;
+                maxRate = share;
+                rateLimiter.setRate(rate);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void decrease() {
+            lock.lock();
+            try {
+                long now = System.nanoTime();
+                if (now - lastDecrease < DECREASE_COOLDOWN.toNanos()) {
+                    return;
+                }
+                lastDecrease = now;
+                rate = Math.max(maxRate * MIN_RATE_FRACTION, rate / 2);
+                rateLimiter.setRate(rate);
+                log.info("Backing off {} {} to {} rps", key.kind(), key.host(), String.format("%.2f", rate));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void increase() {
+            lock.lock();
+            try {
+                if (rate >= maxRate) {
+                    return;
+                }
+                rate = Math.min(maxRate, rate + maxRate * INCREASE_FRACTION);
+                rateLimiter.setRate(rate);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
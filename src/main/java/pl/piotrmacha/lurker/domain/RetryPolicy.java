@@ -0,0 +1,54 @@
+package pl.piotrmacha.lurker.domain;
+
+import org.jsoup.HttpStatusException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether a failed task goes back to the queue and when it is tried again.
+ * <p>
+ * Timeouts, connection errors, 429 and server errors are transient, the forum is likely to answer the same request
+ * later. Other 4xx responses (404 most of all) and errors of the processors are permanent and go straight to
+ * {@code download_queue_failure}. Transient errors are retried up to {@link #MAX_ATTEMPTS} times with an exponential
+ * backoff with jitter, so tasks that failed together don't come back together.
+ */
+final class RetryPolicy {
+    static final int MAX_ATTEMPTS = 8;
+    private static final Duration BASE_DELAY = Duration.ofSeconds(10);
+    private static final Duration MAX_DELAY = Duration.ofMinutes(30);
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int REQUEST_TIMEOUT = 408;
+
+    private RetryPolicy() {}
+
+    /**
+     * Whether the task failed with {@code error} after {@code attempts} earlier failures should be tried again.
+     */
+    static boolean shouldRetry(Throwable error, int attempts) {
+        return attempts + 1 < MAX_ATTEMPTS && isTransient(error);
+    }
+
+    static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpStatusException status) {
+                int code = status.getStatusCode();
+                return code == TOO_MANY_REQUESTS || code == REQUEST_TIMEOUT || code / 100 == 5;
+            }
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Delay before the next attempt: between half and the whole of {@code BASE_DELAY * 2^attempts}, at most
+     * {@code MAX_DELAY}.
+     */
+    static Duration backoff(int attempts) {
+        long max = Math.min(MAX_DELAY.toMillis(), BASE_DELAY.toMillis() << Math.min(attempts, 20));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(max / 2, max + 1));
+    }
+}
@@ -0,0 +1,70 @@
+package pl.piotrmacha.lurker.domain;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@ShellComponent
+public class SearchService {
+    private static final int MAX_LIMIT = 100;
+
+    @ShellMethod(value = "Search downloaded posts", key = "search")
+    public String search(
+            @ShellOption(value = "--query") String query,
+            @ShellOption(value = "--language", defaultValue = "POLISH") Post.SearchLanguage language,
+            @ShellOption(value = "--board", defaultValue = "") String board,
+            @ShellOption(value = "--topic", defaultValue = "") String topic,
+            @ShellOption(value = "--author", defaultValue = "") String author,
+            @ShellOption(value = "--from", defaultValue = "") String from,
+            @ShellOption(value = "--to", defaultValue = "") String to,
+            @ShellOption(value = "--after", defaultValue = "") String after,
+            @ShellOption(value = "--limit", defaultValue = "20") int limit
+    ) {
+        Post.SearchQuery searchQuery = new Post.SearchQuery(
+                query,
+                language,
+                blankToNull(board),
+                blankToNull(topic),
+                blankToNull(author),
+                from.isBlank() ? null : startOfDay(LocalDate.parse(from)),
+                to.isBlank() ? null : startOfDay(LocalDate.parse(to).plusDays(1)),
+                after.isBlank() ? null : Post.SearchCursor.parse(after),
+                Math.clamp(limit, 1, MAX_LIMIT));
+
+        long start = System.nanoTime();
+        List<Post.SearchResult> results = Post.dao().search(searchQuery);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        StringBuilder output = new StringBuilder();
+        for (Post.SearchResult result : results) {
+            output.append(String.format("[%.4f] %s - %s, %s%n", result.rank(), result.topic(), result.author(),
+                    result.createdAt() != null ? result.createdAt().atOffset(ZoneOffset.UTC).toLocalDate() : "?"));
+            output.append("  ").append(result.url()).append(System.lineSeparator());
+            if (result.snippet() != null) {
+                output.append("  ").append(Jsoup.parseBodyFragment(result.snippet()).text()).append(System.lineSeparator());
+            }
+        }
+        output.append(results.size()).append(" results in ").append(millis).append(" ms");
+        if (results.size() == searchQuery.limit()) {
+            output.append(", next page: --after ").append(results.getLast().cursor());
+        }
+        return output.toString();
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private static Instant startOfDay(LocalDate date) {
+        return date.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+}
@@ -0,0 +1,272 @@
+package pl.piotrmacha.lurker.domain;
+
+/**
+ * Parsed SMF board or topic URL.
+ * <p>
+ * The URL is scanned once: the fragment and {@code PHPSESSID} parameters are dropped, and the position of the
+ * {@code board=} / {@code topic=} key with its id, page offset, {@code .msg} anchor and {@code ;topicseen} flag is
+ * recorded. The canonical forms used by {@link PageInfo} are then built by copying slices of the cleaned URL, without
+ * any regular expressions, and come with their positions moved, so a derived URL is never parsed again.
+ * <p>
+ * Anything after the id that isn't an offset, like {@code .new} in the links to the first unread post, is kept as it
+ * is: {@code topic=12.new} stays as it is and {@code withOffset(40)} gives {@code topic=12.40.new}.
+ */
+final class SmfUrl {
+    private static final String SESSION_PARAM = "PHPSESSID=";
+    private static final String MSG = ".msg";
+    private static final String TOPIC_SEEN = ";topicseen";
+
+    enum Type {
+        BOARD("board="),
+        TOPIC("topic=");
+
+        private final String key;
+
+        Type(String key) {
+            this.key = key;
+        }
+    }
+
+    private final String url;
+    private final Type type;
+    private final boolean query;
+    private final int idEnd;
+    private final int offsetEnd;
+    private final int msgEnd;
+    private final int end;
+    private final int id;
+    private final int offset;
+    private final int msg;
+
+    private SmfUrl(String url, Type type, boolean query, int idEnd, int offsetEnd, int msgEnd, int end, int id, int offset, int msg) {
+        this.url = url;
+        this.type = type;
+        this.query = query;
+        this.idEnd = idEnd;
+        this.offsetEnd = offsetEnd;
+        this.msgEnd = msgEnd;
+        this.end = end;
+        this.id = id;
+        this.offset = offset;
+        this.msg = msg;
+    }
+
+    static SmfUrl board(String url) {
+        return parse(url, Type.BOARD);
+    }
+
+    static SmfUrl topic(String url) {
+        return parse(url, Type.TOPIC);
+    }
+
+    static boolean isBoard(String url) {
+        return findKey(url, Type.BOARD.key) >= 0;
+    }
+
+    static boolean isTopic(String url) {
+        return findKey(url, Type.TOPIC.key) >= 0;
+    }
+
+    static SmfUrl parse(String url, Type type) {
+        String cleaned = clean(url);
+        int start = findKey(cleaned, type.key);
+        if (start < 0) {
+            throw new IllegalArgumentException("Invalid " + type.name().toLowerCase() + " URI: " + url);
+        }
+        boolean query = start > 0 && cleaned.charAt(start - 1) == '?';
+        int length = cleaned.length();
+
+        int position = start + type.key.length();
+        int id = 0;
+        while (position < length && isDigit(cleaned.charAt(position))) {
+            id = id * 10 + (cleaned.charAt(position++) - '0');
+        }
+        int idEnd = position;
+
+        int offset = 0;
+        if (position + 1 < length && cleaned.charAt(position) == '.' && isDigit(cleaned.charAt(position + 1))) {
+            position++;
+            while (position < length && isDigit(cleaned.charAt(position))) {
+                offset = offset * 10 + (cleaned.charAt(position++) - '0');
+            }
+        }
+        int offsetEnd = position;
+
+        int msg = 0;
+        if (type == Type.TOPIC && cleaned.startsWith(MSG, position)
+                && position + MSG.length() < length && isDigit(cleaned.charAt(position + MSG.length()))) {
+            position += MSG.length();
+            while (position < length && isDigit(cleaned.charAt(position))) {
+                msg = msg * 10 + (cleaned.charAt(position++) - '0');
+            }
+        }
+        int msgEnd = position;
+
+        if (type == Type.TOPIC && cleaned.startsWith(TOPIC_SEEN, position)) {
+            position += TOPIC_SEEN.length();
+        }
+
+        return new SmfUrl(cleaned, type, query, idEnd, offsetEnd, msgEnd, position, id, offset, msg);
+    }
+
+    /**
+     * Removes the fragment and the {@code PHPSESSID} parameter. URLs without them are returned as they are.
+     */
+    static String clean(String url) {
+        int fragment = url.indexOf('#');
+        int length = fragment < 0 ? url.length() : fragment;
+        int session = url.indexOf(SESSION_PARAM);
+        if (session < 0 || session >= length) {
+            return fragment < 0 ? url : url.substring(0, fragment);
+        }
+
+        StringBuilder builder = new StringBuilder(length);
+        int copied = 0;
+        while (session >= 0 && session < length) {
+            int valueStart = session + SESSION_PARAM.length();
+            int valueEnd = valueStart;
+            while (valueEnd < length && url.charAt(valueEnd) != '&') {
+                valueEnd++;
+            }
+            char separator = session > 0 ? url.charAt(session - 1) : 0;
+            if (valueEnd > valueStart && (separator == '?' || separator == '&')) {
+                if (separator == '?') {
+                    builder.append(url, copied, session);
+                    copied = valueEnd < length ? valueEnd + 1 : valueEnd;
+                } else {
+                    builder.append(url, copied, Math.max(copied, session - 1));
+                    copied = valueEnd;
+                }
+            }
+            session = url.indexOf(SESSION_PARAM, valueEnd);
+        }
+        return builder.append(url, copied, length).toString();
+    }
+
+    Type type() {
+        return type;
+    }
+
+    int id() {
+        return id;
+    }
+
+    int offset() {
+        return offset;
+    }
+
+    int msg() {
+        return msg;
+    }
+
+    /**
+     * Cleaned URL with the key and everything else left as it was.
+     */
+    String url() {
+        return url;
+    }
+
+    /**
+     * URL of the first page: the offset, {@code .msg} anchor and {@code ;topicseen} are dropped.
+     */
+    SmfUrl withoutOffset() {
+        if (type == Type.TOPIC && !query) {
+            return this;
+        }
+        return cut(idEnd, type == Type.TOPIC ? end : offsetEnd);
+    }
+
+    /**
+     * URL of the page: the offset is kept, the {@code .msg} anchor and {@code ;topicseen} are dropped.
+     */
+    SmfUrl withOffset() {
+        if (type == Type.TOPIC && !query) {
+            return this;
+        }
+        return cut(offsetEnd, end);
+    }
+
+    /**
+     * URL of the page at the given offset, with the {@code .msg} anchor and {@code ;topicseen} dropped.
+     */
+    SmfUrl withOffset(int newOffset) {
+        String value = Integer.toString(newOffset);
+        int rest = type == Type.TOPIC ? end : offsetEnd;
+        String newUrl = new StringBuilder(url.length() + value.length() + 1)
+                .append(url, 0, idEnd)
+                .append('.')
+                .append(value)
+                .append(url, rest, url.length())
+                .toString();
+        int newOffsetEnd = idEnd + 1 + value.length();
+        return new SmfUrl(newUrl, type, query, idEnd, newOffsetEnd, newOffsetEnd, newOffsetEnd, id, newOffset, 0);
+    }
+
+    /**
+     * URL of a post: {@code ?topic=<id>.msg<msg>} with {@code ;topicseen} dropped.
+     */
+    SmfUrl post() {
+        if (!query || msgEnd == offsetEnd || offsetEnd != idEnd) {
+            return this;
+        }
+        return cut(msgEnd, end);
+    }
+
+    /**
+     * Removes {@code [cutStart, cutEnd)} from the URL and moves the recorded positions, the parts that were cut away
+     * read as absent.
+     */
+    private SmfUrl cut(int cutStart, int cutEnd) {
+        if (cutStart == cutEnd) {
+            return this;
+        }
+        String newUrl = new StringBuilder(url.length() - (cutEnd - cutStart))
+                .append(url, 0, cutStart)
+                .append(url, cutEnd, url.length())
+                .toString();
+        int newIdEnd = shift(idEnd, cutStart, cutEnd);
+        int newOffsetEnd = shift(offsetEnd, cutStart, cutEnd);
+        int newMsgEnd = shift(msgEnd, cutStart, cutEnd);
+        int newEnd = shift(end, cutStart, cutEnd);
+        return new SmfUrl(newUrl, type, query, newIdEnd, newOffsetEnd, newMsgEnd, newEnd, id,
+                newOffsetEnd > newIdEnd ? offset : 0, newMsgEnd > newOffsetEnd ? msg : 0);
+    }
+
+    private static int shift(int position, int cutStart, int cutEnd) {
+        if (position >= cutEnd) {
+            return position - (cutEnd - cutStart);
+        }
+        return Math.min(position, cutStart);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof SmfUrl that && type == that.type && url.equals(that.url);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * type.hashCode() + url.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+
+    private static int findKey(String url, String key) {
+        int index = url.indexOf(key);
+        while (index >= 0) {
+            int digit = index + key.length();
+            if (digit < url.length() && isDigit(url.charAt(digit))) {
+                return index;
+            }
+            index = url.indexOf(key, index + 1);
+        }
+        return -1;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,143 @@
+package pl.piotrmacha.lurker.domain;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Feeds tasks from the {@link DownloadQueue} to a handler with a bounded number of tasks in flight.
+ * <p>
+ * A task is polled only after a slot becomes free. When the queue is empty the dispatcher parks until a task
+ * completes or something new is enqueued, and it finishes once the queue is empty and nothing is in flight. Tasks
+ * waiting for a retry after a transient error count as queued, the dispatcher sleeps until the first of them is due.
+ * In daemon mode it keeps waiting for new tasks instead.
+ */
+@Slf4j
+public class TaskDispatcher {
+    private static final Duration IDLE_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration MIN_RETRY_WAIT = Duration.ofSeconds(1);
+
+    private final DownloadQueue queue;
+    private final Set<DownloadQueue.TaskType> types;
+    private final Function<DownloadQueue.Task, CompletableFuture<?>> handler;
+    private final Semaphore slots;
+    private final boolean daemon;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition wakeUp = lock.newCondition();
+    private boolean signalled = false;
+
+    public TaskDispatcher(
+            DownloadQueue queue,
+            Set<DownloadQueue.TaskType> types,
+            int concurrency,
+            Function<DownloadQueue.Task, CompletableFuture<?>> handler
+    ) {
+        this(queue, types, concurrency, handler, false);
+    }
+
+    public TaskDispatcher(
+            DownloadQueue queue,
+            Set<DownloadQueue.TaskType> types,
+            int concurrency,
+            Function<DownloadQueue.Task, CompletableFuture<?>> handler,
+            boolean daemon
+    ) {
+        this.queue = queue;
+        this.types = types;
+        this.handler = handler;
+        this.slots = new Semaphore(concurrency);
+        this.daemon = daemon;
+    }
+
+    public void run() throws InterruptedException {
+        Runnable listener = this::signal;
+        queue.addListener(listener);
+        try {
+            while (true) {
+                slots.acquire();
+                boolean idle = inFlight.get() == 0;
+                Optional<DownloadQueue.Task> task = queue.poll(types);
+                if (task.isPresent()) {
+                    dispatch(task.get());
+                    continue;
+                }
+
+                slots.release();
+                if (idle && !daemon) {
+                    Optional<DownloadQueue.PendingRetries> retries = queue.pendingRetries(types);
+                    if (retries.isEmpty()) {
+                        break;
+                    }
+                    Duration wait = retries.get().next().compareTo(MIN_RETRY_WAIT) > 0 ? retries.get().next() : MIN_RETRY_WAIT;
+                    log.info("{} tasks wait to be retried, next in {}s", retries.get().tasks(), wait.toSeconds());
+                    awaitSignal(wait);
+                    continue;
+                }
+                awaitSignal(IDLE_TIMEOUT);
+            }
+        } finally {
+            queue.removeListener(listener);
+        }
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    private void dispatch(DownloadQueue.Task task) {
+        inFlight.incrementAndGet();
+        CompletableFuture<?> future;
+        try {
+            future = handler.apply(task);
+        } catch (Exception e) {
+            log.error("Couldn't dispatch task: {}", task, e);
+            complete(task);
+            return;
+        }
+        future.whenComplete((result, e) -> {
+            if (e != null) {
+                log.error("Task completed exceptionally: {}", task, e);
+            }
+            complete(task);
+        });
+    }
+
+    private void complete(DownloadQueue.Task task) {
+        queue.finished(task);
+        inFlight.decrementAndGet();
+        slots.release();
+        signal();
+    }
+
+    private void signal() {
+        lock.lock();
+        try {
+            signalled = true;
+            wakeUp.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitSignal(Duration timeout) throws InterruptedException {
+        lock.lock();
+        try {
+            long remaining = timeout.toNanos();
+            while (!signalled && remaining > 0) {
+                remaining = wakeUp.awaitNanos(remaining);
+            }
+            signalled = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package pl.piotrmacha.lurker.domain;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Runs tasks through three stages connected by bounded queues: fetch (network, paced by the rate limiters), parse
+ * (CPU bound, one worker per core by default) and persist (database, sized to the connection pool).
+ * <p>
+ * Every stage has its own workers, so a slow database write doesn't hold up fetching and the other way around. A
+ * worker that can't hand an item over to the next stage blocks, so the pipeline never buffers more than the queue
+ * capacities. Persist workers take up to {@code writeBatch} items at once. Tasks are fed by a {@link TaskDispatcher}
+ * bounded to the capacity of the whole pipeline, which also finishes the run once the queue is drained.
+ *
+ * @param <W> work item passed between the stages
+ */
+@Slf4j
+public class TaskPipeline<W> {
+    private final Settings settings;
+    private final Stage<DownloadQueue.Task, W> fetch;
+    private final Stage<W, W> parse;
+    private final Consumer<List<W>> persist;
+    private final BlockingQueue<Item<DownloadQueue.Task>> fetchQueue;
+    private final BlockingQueue<Item<W>> parseQueue;
+    private final BlockingQueue<Item<W>> persistQueue;
+    private final List<Thread> workers = new ArrayList<>();
+
+    public record Settings(int fetchers, int parsers, int writers, int queueCapacity, int writeBatch, boolean virtualThreads) {
+        int capacity() {
+            return fetchers + parsers + writers * writeBatch + 3 * queueCapacity;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Stage<I, O> {
+        O apply(I input);
+    }
+
+    public TaskPipeline(Settings settings, Stage<DownloadQueue.Task, W> fetch, Stage<W, W> parse, Consumer<List<W>> persist) {
+        this.settings = settings;
+        this.fetch = fetch;
+        this.parse = parse;
+        this.persist = persist;
+        this.fetchQueue = new ArrayBlockingQueue<>(settings.queueCapacity());
+        this.parseQueue = new ArrayBlockingQueue<>(settings.queueCapacity());
+        this.persistQueue = new ArrayBlockingQueue<>(settings.queueCapacity());
+        CrawlerMetrics.pipelineQueue("fetch", fetchQueue);
+        CrawlerMetrics.pipelineQueue("parse", parseQueue);
+        CrawlerMetrics.pipelineQueue("persist", persistQueue);
+    }
+
+    public void run(DownloadQueue queue, Set<DownloadQueue.TaskType> types) throws InterruptedException {
+        run(queue, types, false);
+    }
+
+    /**
+     * Runs the tasks of the given types until the queue is drained, or in daemon mode until interrupted.
+     */
+    public void run(DownloadQueue queue, Set<DownloadQueue.TaskType> types, boolean daemon) throws InterruptedException {
+        log.info("Starting pipeline, fetchers: {}, parsers: {}, writers: {}, queue capacity: {}, write batch: {}",
+                settings.fetchers(), settings.parsers(), settings.writers(), settings.queueCapacity(), settings.writeBatch());
+        Thread.Builder fetchers = settings.virtualThreads()
+                ? Thread.ofVirtual().name("fetch-", 0)
+                : Thread.ofPlatform().daemon().name("fetch-", 0);
+        Thread.Builder parsers = Thread.ofPlatform().daemon().name("parse-", 0);
+        Thread.Builder writers = Thread.ofPlatform().daemon().name("persist-", 0);
+        for (int i = 0; i < settings.fetchers(); i++) {
+            workers.add(fetchers.start(() -> work(fetchQueue, parseQueue, fetch)));
+        }
+        for (int i = 0; i < settings.parsers(); i++) {
+            workers.add(parsers.start(() -> work(parseQueue, persistQueue, parse)));
+        }
+        for (int i = 0; i < settings.writers(); i++) {
+            workers.add(writers.start(this::write));
+        }
+
+        try {
+            new TaskDispatcher(queue, types, settings.capacity(), this::submit, daemon).run();
+        } finally {
+            workers.forEach(Thread::interrupt);
+            workers.clear();
+        }
+    }
+
+    private CompletableFuture<?> submit(DownloadQueue.Task task) {
+        Item<DownloadQueue.Task> item = new Item<>(task, new CompletableFuture<>());
+        try {
+            fetchQueue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            item.done().completeExceptionally(e);
+        }
+        return item.done();
+    }
+
+    private <I, O> void work(BlockingQueue<Item<I>> input, BlockingQueue<Item<O>> output, Stage<I, O> stage) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Item<I> item = input.take();
+                O result;
+                try {
+                    result = stage.apply(item.value());
+                } catch (Exception e) {
+                    item.done().completeExceptionally(e);
+                    continue;
+                }
+                output.put(new Item<>(result, item.done()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write() {
+        List<Item<W>> batch = new ArrayList<>(settings.writeBatch());
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batch.add(persistQueue.take());
+                persistQueue.drainTo(batch, settings.writeBatch() - 1);
+                try {
+                    persist.accept(batch.stream().map(Item::value).toList());
+                    batch.forEach(item -> item.done().complete(null));
+                } catch (Exception e) {
+                    batch.forEach(item -> item.done().completeExceptionally(e));
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Item<T>(T value, CompletableFuture<Void> done) {}
+}
@@ -0,0 +1,80 @@
+package pl.piotrmacha.lurker.domain;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Hashed timing wheel. Items are put into one of {@code slots} buckets by the tick they are due at, and advancing
+ * the wheel only looks at the buckets of the ticks that passed. Items due more than one revolution ahead stay in
+ * their bucket until their tick comes. Scheduling is O(1), and advancing costs the number of passed ticks plus the
+ * items in their buckets, however many items wait further ahead.
+ * <p>
+ * Not thread safe.
+ *
+ * @param <T> scheduled item
+ */
+public class TimerWheel<T> {
+    private final long tickMillis;
+    private final List<Deque<Entry<T>>> buckets;
+    private long current;
+    private int size;
+
+    public TimerWheel(Duration tick, int slots, Instant now) {
+        this.tickMillis = Math.max(1, tick.toMillis());
+        this.buckets = new ArrayList<>(slots);
+        for (int i = 0; i < slots; i++) {
+            buckets.add(new ArrayDeque<>());
+        }
+        this.current = ticks(now);
+    }
+
+    /**
+     * Schedules the item at {@code dueAt}. Items due in the past are returned by the next {@link #advance}.
+     */
+    public void schedule(T item, Instant dueAt) {
+        long due = Math.max(ticks(dueAt), current + 1);
+        buckets.get(slot(due)).add(new Entry<>(item, due));
+        size++;
+    }
+
+    /**
+     * Moves the wheel to {@code now} and removes the items that are due.
+     */
+    public List<T> advance(Instant now) {
+        long target = ticks(now);
+        List<T> due = new ArrayList<>();
+        long steps = Math.min(target - current, buckets.size());
+        for (long tick = current + 1; tick <= current + steps; tick++) {
+            Iterator<Entry<T>> entries = buckets.get(slot(tick)).iterator();
+            while (entries.hasNext()) {
+                Entry<T> entry = entries.next();
+                if (entry.due() <= target) {
+                    due.add(entry.item());
+                    entries.remove();
+                }
+            }
+        }
+        current = Math.max(current, target);
+        size -= due.size();
+        return due;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private long ticks(Instant instant) {
+        return instant.toEpochMilli() / tickMillis;
+    }
+
+    private int slot(long tick) {
+        return (int) Math.floorMod(tick, (long) buckets.size());
+    }
+
+    private record Entry<T>(T item, long due) {}
+}
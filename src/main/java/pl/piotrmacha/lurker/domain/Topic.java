@@ -2,13 +2,16 @@ package pl.piotrmacha.lurker.domain;
 
 import lombok.With;
 import org.jooq.DSLContext;
+import org.jooq.Field;
 import org.jooq.Table;
 import org.jooq.TableField;
+import org.jooq.impl.DSL;
 import org.springframework.stereotype.Component;
 import pl.piotrmacha.lurker.jooq.Tables;
 import pl.piotrmacha.lurker.jooq.tables.records.TopicRecord;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -22,7 +25,10 @@ public record Topic(
         Long authorId,
         Long boardId,
         Instant createdAt,
-        Instant lastUpdate
+        Instant lastUpdate,
+        Integer replyCount,
+        Integer lastPageOffset,
+        Long lastPostOid
 ) {
     private static TopicDao dao;
 
@@ -30,12 +36,40 @@ public record Topic(
         return dao.save(this.withLastUpdate(Instant.now()));
     }
 
+    /**
+     * Offset of the first page that can hold replies beyond {@code replyCount}, or empty when the topic was crawled
+     * up to that count. A topic that was never crawled starts at the first page.
+     */
+    public Optional<Integer> resumeOffset(int replyCount) {
+        if (lastPageOffset == null) {
+            return Optional.of(0);
+        }
+        if (this.replyCount != null && replyCount <= this.replyCount) {
+            return Optional.empty();
+        }
+        return Optional.of(lastPageOffset);
+    }
+
+    /**
+     * Offset of the first page that can hold the post {@code postOid}, or empty when the post was already crawled.
+     * Post ids grow over time, so a post newer than the last crawled one can only be on the last known page or after.
+     */
+    public Optional<Integer> resumeOffsetForPost(long postOid) {
+        if (lastPageOffset == null) {
+            return Optional.of(0);
+        }
+        if (lastPostOid != null && postOid <= lastPostOid) {
+            return Optional.empty();
+        }
+        return Optional.of(lastPageOffset);
+    }
+
     public static TopicDao dao() {
         return dao;
     }
 
     public static Topic of(Long id, String oid, String url, String title, Long authorId, Long boardId, Instant createdAt, Instant lastUpdate) {
-        return new Topic(id, oid, url, title, authorId, boardId, createdAt, lastUpdate);
+        return new Topic(id, oid, url, title, authorId, boardId, createdAt, lastUpdate, null, null, null);
     }
 
     public static Topic of(String oid, String url, String title, Long authorId, Long boardId, Instant createdAt) {
@@ -64,7 +98,12 @@ public record Topic(
         @Override
         public Topic save(Topic entity) {
             return findByOid(entity.oid)
-                    .map(existing -> entity.withId(existing.id()))
+                    .map(existing -> {
+                        if (entity.title() != null && !entity.title().equals(existing.title())) {
+                            rename(existing.id(), entity.title());
+                        }
+                        return entity.withId(existing.id());
+                    })
                     .orElseGet(() -> {
                        if (entity.id() == null) {
                             return super.create(entity.withId(context.nextval("topic_id_seq").longValue()));
@@ -73,6 +112,55 @@ public record Topic(
                     });
         }
 
+        /**
+         * Changes the title of a topic, and marks its posts for full text indexing, which keeps a copy of the title.
+         */
+        public void rename(Long topicId, String title) {
+            timed("rename", () -> context.transactionResult(configuration -> {
+                DSLContext tx = DSL.using(configuration);
+                int updated = tx.update(Tables.TOPIC)
+                        .set(Tables.TOPIC.TITLE, title)
+                        .set(Tables.TOPIC.LAST_UPDATE, of(Instant.now()))
+                        .where(Tables.TOPIC.ID.eq(topicId))
+                        .and(Tables.TOPIC.TITLE.isDistinctFrom(title))
+                        .execute();
+                if (updated > 0) {
+                    FullTextIndexer.markTopicsDirty(tx, List.of(topicId));
+                }
+                return updated;
+            }));
+        }
+
+        public void updateAuthor(DSLContext tx, Long topicId, Long authorId) {
+            tx.update(Tables.TOPIC)
+                    .set(Tables.TOPIC.AUTHOR_ID, authorId)
+                    .set(Tables.TOPIC.LAST_UPDATE, of(Instant.now()))
+                    .where(Tables.TOPIC.ID.eq(topicId))
+                    .and(Tables.TOPIC.AUTHOR_ID.isDistinctFrom(authorId))
+                    .execute();
+        }
+
+        /**
+         * Records a crawled page. The page offset and the last post id only grow, so pages may be stored in any
+         * order. The reply count is only known on the last page and is left untouched when {@code replyCount} is null.
+         */
+        public void updateCrawlState(Long topicId, int pageOffset, Long lastPostOid, Integer replyCount) {
+            Field<Integer> pageOffsetValue = DSL.greatest(DSL.coalesce(Tables.TOPIC.LAST_PAGE_OFFSET, 0), DSL.val(pageOffset));
+            Field<Long> lastPostOidValue = lastPostOid != null
+                    ? DSL.greatest(DSL.coalesce(Tables.TOPIC.LAST_POST_OID, 0L), DSL.val(lastPostOid))
+                    : Tables.TOPIC.LAST_POST_OID;
+            Field<Integer> replyCountValue = replyCount != null ? DSL.val(replyCount) : Tables.TOPIC.REPLY_COUNT;
+            int updated = timed("updateCrawlState", () -> context.update(Tables.TOPIC)
+                    .set(Tables.TOPIC.LAST_PAGE_OFFSET, pageOffsetValue)
+                    .set(Tables.TOPIC.LAST_POST_OID, lastPostOidValue)
+                    .set(Tables.TOPIC.REPLY_COUNT, replyCountValue)
+                    .where(Tables.TOPIC.ID.eq(topicId))
+                    .and(DSL.row(Tables.TOPIC.LAST_PAGE_OFFSET, Tables.TOPIC.LAST_POST_OID, Tables.TOPIC.REPLY_COUNT)
+                            .isDistinctFrom(pageOffsetValue, lastPostOidValue, replyCountValue))
+                    .execute());
+            CrawlerMetrics.writes(getClass().getSimpleName(), updated, 1 - updated);
+        }
+
         @Override
         public Topic create(Topic entity) {
             if (entity.id() == null) {
@@ -105,6 +193,9 @@ public record Topic(
                     .set(Tables.TOPIC.TITLE, topic.title())
                     .set(Tables.TOPIC.AUTHOR_ID, topic.authorId())
                     .set(Tables.TOPIC.BOARD_ID, topic.boardId())
+                    .set(Tables.TOPIC.REPLY_COUNT, topic.replyCount())
+                    .set(Tables.TOPIC.LAST_PAGE_OFFSET, topic.lastPageOffset())
+                    .set(Tables.TOPIC.LAST_POST_OID, topic.lastPostOid())
                     .set(Tables.TOPIC.CREATED_AT, of(topic.createdAt()))
                     .set(Tables.TOPIC.LAST_UPDATE, of(topic.lastUpdate()));
         }
@@ -0,0 +1,145 @@
+package pl.piotrmacha.lurker.domain;
+
+import lombok.With;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Table;
+import org.jooq.TableField;
+import org.jooq.impl.DSL;
+import org.jooq.types.DayToSecond;
+import org.springframework.stereotype.Component;
+import pl.piotrmacha.lurker.jooq.Tables;
+import pl.piotrmacha.lurker.jooq.tables.records.WorkerRecord;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static org.jooq.impl.DSL.count;
+import static org.jooq.impl.DSL.select;
+
+/**
+ * A lurker process taking tasks from the download queue. Workers keep {@code heartbeat_at} fresh while they run,
+ * the leases of a worker that stopped sending heartbeats are returned to the queue by the others. Timestamps come
+ * from the database clock, so workers on different machines agree on them.
+ */
+@With
+public record Worker(
+        String id,
+        String host,
+        Instant startedAt,
+        Instant heartbeatAt
+) {
+    private static WorkerDao dao;
+
+    public static WorkerDao dao() {
+        return dao;
+    }
+
+    @Component
+    public static class WorkerDao extends AbstractDao<Worker, WorkerRecord, String> {
+        public WorkerDao(DSLContext context) {
+            super(context);
+            dao = this;
+        }
+
+        /**
+         * Registers the worker or refreshes its heartbeat.
+         */
+        public void heartbeat(String id, String host) {
+            timed("heartbeat", () -> context.insertInto(Tables.WORKER)
+                    .set(Tables.WORKER.ID, id)
+                    .set(Tables.WORKER.HOST, host)
+                    .onConflict(Tables.WORKER.ID)
+                    .doUpdate()
+                    .set(Tables.WORKER.HEARTBEAT_AT, DSL.currentOffsetDateTime())
+                    .execute());
+        }
+
+        /**
+         * Number of workers with a heartbeat within {@code timeout}.
+         */
+        public int countLive(Duration timeout) {
+            return timed("countLive", () -> context.select(count())
+                    .from(Tables.WORKER)
+                    .where(Tables.WORKER.HEARTBEAT_AT.ge(heartbeatDeadline(timeout)))
+                    .fetchSingleInto(Integer.class));
+        }
+
+        /**
+         * Returns the leases of workers without a heartbeat within {@code timeout} to the queue and removes those
+         * workers.
+         *
+         * @return number of tasks returned to the queue
+         */
+        public int reclaimDead(Duration timeout) {
+            return timed("reclaimDead", () -> context.transactionResult(configuration -> {
+                DSLContext tx = DSL.using(configuration);
+                var dead = select(Tables.WORKER.ID)
+                        .from(Tables.WORKER)
+                        .where(Tables.WORKER.HEARTBEAT_AT.lt(heartbeatDeadline(timeout)));
+                int reclaimed = tx.update(Tables.DOWNLOAD_QUEUE)
+                        .setNull(Tables.DOWNLOAD_QUEUE.LOCKED_AT)
+                        .setNull(Tables.DOWNLOAD_QUEUE.LOCKED_BY)
+                        .where(Tables.DOWNLOAD_QUEUE.LOCKED_BY.in(dead))
+                        .execute();
+                tx.deleteFrom(Tables.WORKER)
+                        .where(Tables.WORKER.HEARTBEAT_AT.lt(heartbeatDeadline(timeout)))
+                        .execute();
+                return reclaimed;
+            }));
+        }
+
+        /**
+         * Returns the leases of the worker to the queue and removes it.
+         */
+        public void deregister(String id) {
+            timed("deregister", () -> context.transactionResult(configuration -> {
+                DSLContext tx = DSL.using(configuration);
+                tx.update(Tables.DOWNLOAD_QUEUE)
+                        .setNull(Tables.DOWNLOAD_QUEUE.LOCKED_AT)
+                        .setNull(Tables.DOWNLOAD_QUEUE.LOCKED_BY)
+                        .where(Tables.DOWNLOAD_QUEUE.LOCKED_BY.eq(id))
+                        .execute();
+                return tx.deleteFrom(Tables.WORKER)
+                        .where(Tables.WORKER.ID.eq(id))
+                        .execute();
+            }));
+        }
+
+        private static Field<OffsetDateTime> heartbeatDeadline(Duration timeout) {
+            return DSL.currentOffsetDateTime().minus(DayToSecond.valueOf(timeout));
+        }
+
+        @Override
+        protected Class<Worker> entity() {
+            return Worker.class;
+        }
+
+        @Override
+        protected Table<WorkerRecord> table() {
+            return Tables.WORKER;
+        }
+
+        @Override
+        protected TableField<WorkerRecord, String> idField() {
+            return Tables.WORKER.ID;
+        }
+
+        @Override
+        protected BiFunction<RecordMapper<WorkerRecord>, Worker, RecordMapper<WorkerRecord>> mapper() {
+            return (mapper, worker) -> mapper
+                    .set(Tables.WORKER.ID, worker.id())
+                    .set(Tables.WORKER.HOST, worker.host())
+                    .set(Tables.WORKER.STARTED_AT, of(worker.startedAt()))
+                    .set(Tables.WORKER.HEARTBEAT_AT, of(worker.heartbeatAt()));
+        }
+
+        @Override
+        protected Function<Worker, String> idMapper() {
+            return Worker::id;
+        }
+    }
+}
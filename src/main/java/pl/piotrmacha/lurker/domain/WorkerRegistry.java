@@ -0,0 +1,129 @@
+package pl.piotrmacha.lurker.domain;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registers this process as a {@link Worker}, so several lurker processes, also on different machines, can work on
+ * one download queue. Tasks polled from the queue are leased to the worker id.
+ * <p>
+ * While running, the worker sends a heartbeat every few seconds. With every heartbeat it returns the leases of
+ * workers that stopped sending them to the queue, and splits the rate limits between the live workers, so the
+ * forum gets the configured number of requests per second however many workers there are.
+ * <p>
+ * Leases also expire after {@code LURKER_LEASE_TTL} (10 minutes by default), so a task stuck in a live worker goes
+ * back to the queue as well. The worker renews the leases of the tasks it still holds once they are half that old:
+ * tasks being processed for as long as they run, tasks waiting in its buffer only during the first TTL after they
+ * were polled, see {@link DownloadQueue#held(Duration)}. A task the worker lost track of expires within about twice
+ * the TTL. Expired leases of any worker are reaped on every heartbeat.
+ */
+@Slf4j
+@Component
+public class WorkerRegistry {
+    private static final Duration HEARTBEAT = Duration.ofSeconds(5);
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final int REAP_BATCH_SIZE = 1000;
+
+    private final String id;
+    private final String host;
+    private final Duration leaseTtl;
+    private RateLimiterRegistry rateLimiters;
+    private DownloadQueue queue;
+    private Thread heartbeat;
+    private CountDownLatch stopped;
+
+    public WorkerRegistry(@Value("${LURKER_LEASE_TTL:10m}") Duration leaseTtl) {
+        if (leaseTtl.compareTo(TIMEOUT) < 0) {
+            throw new IllegalArgumentException("LURKER_LEASE_TTL must be at least " + TIMEOUT.toSeconds() + "s, got " + leaseTtl);
+        }
+        this.leaseTtl = leaseTtl;
+        this.host = hostname();
+        this.id = host + "-" + ProcessHandle.current().pid() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    public String id() {
+        return id;
+    }
+
+    /**
+     * Registers the worker and starts sending heartbeats until {@link #stop()}.
+     */
+    public synchronized void start(RateLimiterRegistry rateLimiters, DownloadQueue queue) {
+        if (heartbeat != null) {
+            return;
+        }
+        this.rateLimiters = rateLimiters;
+        this.queue = queue;
+        beat();
+        log.info("Registered worker {}", id);
+        stopped = new CountDownLatch(1);
+        heartbeat = Thread.ofPlatform().daemon().name("worker-heartbeat").start(this::run);
+    }
+
+    /**
+     * Stops sending heartbeats, returns the leases of this worker to the queue and deregisters it.
+     */
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (heartbeat == null) {
+            return;
+        }
+        stopped.countDown();
+        heartbeat.join();
+        heartbeat = null;
+        Worker.dao().deregister(id);
+        log.info("Deregistered worker {}", id);
+    }
+
+    private void run() {
+        try {
+            while (!stopped.await(HEARTBEAT.toMillis(), TimeUnit.MILLISECONDS)) {
+                try {
+                    beat();
+                } catch (Exception e) {
+                    log.warn("Heartbeat of worker {} failed", id, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void beat() {
+        Worker.dao().heartbeat(id, host);
+        int reclaimed = Worker.dao().reclaimDead(TIMEOUT);
+        if (reclaimed > 0) {
+            log.info("Returned {} tasks of stopped workers to the queue", reclaimed);
+            CrawlerMetrics.leasesReclaimed("worker_stopped", reclaimed);
+        }
+        DownloadQueue.Task.dao().renewLeases(id, queue.held(leaseTtl), leaseTtl.dividedBy(2));
+        int expired = 0;
+        int reaped;
+        do {
+            reaped = DownloadQueue.Task.dao().reclaimExpired(leaseTtl, REAP_BATCH_SIZE);
+            expired += reaped;
+        } while (reaped == REAP_BATCH_SIZE);
+        if (expired > 0) {
+            log.info("Returned {} tasks with leases older than {} to the queue", expired, leaseTtl);
+            CrawlerMetrics.leasesReclaimed("expired", expired);
+        }
+        rateLimiters.share(Math.max(1, Worker.dao().countLive(TIMEOUT)));
+    }
+
+    private static String hostname() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
@@ -7,27 +7,82 @@ import org.jsoup.nodes.Element;
 import pl.piotrmacha.lurker.domain.*;
 
 import java.net.URI;
+import java.time.Instant;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Slf4j
 public class BoardPageProcessor extends DelegatePageProcessor {
+    private static final Pattern REPLY_COUNT_PATTERN = Pattern.compile("([0-9]+)");
+    private static final Pattern DATE_PATTERN = Pattern.compile("([0-9]{4}-[0-9]{2}-[0-9]{2}), ([0-9]{2}:[0-9]{2})");
+
     public BoardPageProcessor(DownloadService service) {
         super(service);
-        setDelegate(this::processBoard);
+        setDelegate((pageInfo, document, context) -> parse(pageInfo, document, context).persist());
     }
 
-    private void processBoard(PageInfo pageInfo, Document document, PageProcessor context) {
+    @Override
+    protected PageWrite parse(PageInfo pageInfo, Document document, PageProcessor context) {
         PageInfo.Uri.Board pageUri = new PageInfo.Uri.Board(pageInfo.uri());
-        if (pageUri.offset() == 0) {
-            schedulePages(pageInfo, pageUri);
+        int lastOffset = lastOffset(context);
+        List<ChildBoard> boards = context.select(".board a.top_info").map(element -> processBoardElement(context, element)).toList();
+        List<BoardTopic> topics = context.select("#messageindex a.all_td_link").map(element -> processTopicElement(context, element)).toList();
+
+        return () -> persistPage(pageUri, lastOffset, boards, topics);
+    }
+
+    private void persistPage(PageInfo.Uri.Board pageUri, int lastOffset, List<ChildBoard> boards, List<BoardTopic> topics) {
+        Board board = Board.dao().getByOid(String.valueOf(pageUri.id()));
+        Optional<Instant> watermark = pageUri.offset() == 0
+                ? Board.dao().startIndex(board.id(), newestPost(topics), service.isFullIndex())
+                : Optional.ofNullable(board.indexedUntil());
+
+        // Topics are sorted by the last post, so the walk ends on the last page or on the first one holding topics
+        // older than the previous run. Every page queues the next one, so the walk reaches its end only after all
+        // pages before it were persisted, and a page that failed for good stops it before the watermark moves.
+        boolean lastPage = pageUri.offset() >= lastOffset
+                || watermark.isPresent() && reachesWatermark(topics, watermark.get());
+
+        if (!lastPage) {
+            PageInfo.Uri.Board uri = pageUri.withOffset(pageUri.offset() + 20).normalizeOffset();
+            service.addTask(DownloadQueue.TaskType.BOARD, uri, (long) uri.id());
         }
 
-        forEach(".board a.top_info", this::processBoardElement);
-        forEach("#messageindex a.all_td_link", this::processTopicElement);
+        boards.forEach(child -> persistBoard(pageUri, child));
+        topics.stream()
+                .filter(topic -> watermark.isEmpty() || topic.lastPostAt() == null || !topic.lastPostAt().isBefore(watermark.get()))
+                .forEach(topic -> persistTopic(pageUri, topic));
+        if (lastPage) {
+            Board.dao().finishIndex(board.id());
+        }
     }
 
-    private void schedulePages(PageInfo pageInfo, PageInfo.Uri.Board pageUri) {
-        int lastOffset = select("#main_content .navigate_section a.navPages")
+    private static Instant newestPost(List<BoardTopic> topics) {
+        return topics.stream()
+                .map(BoardTopic::lastPostAt)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+    }
+
+    /**
+     * Whether the last topic of the page, which is never sticky unless the whole page is, was last active before
+     * the watermark. Dates that can't be parsed, like "today", count as recent.
+     */
+    private static boolean reachesWatermark(List<BoardTopic> topics, Instant watermark) {
+        if (topics.isEmpty()) {
+            return true;
+        }
+        Instant lastPostAt = topics.getLast().lastPostAt();
+        return lastPostAt != null && lastPostAt.isBefore(watermark);
+    }
+
+    private int lastOffset(PageProcessor context) {
+        return context.select("#main_content .navigate_section a.navPages")
                 .map(e -> e.attr("href"))
                 .map(href -> {
                     String[] split = href.split("\\.");
@@ -35,60 +90,89 @@ public class BoardPageProcessor extends DelegatePageProcessor {
                 })
                 .max(Comparator.naturalOrder())
                 .orElse(0);
-
-        int increment = 20;
-        for (int i = increment; i <= lastOffset; i += increment) {
-            PageInfo.Uri.Board uri = pageUri.withOffset(i).normalizeOffset();
-            service().addTask(DownloadQueue.TaskType.BOARD, uri.asPageUri(), (long) uri.id());
-        }
     }
 
-    private void processBoardElement(Element element) {
+    private ChildBoard processBoardElement(PageProcessor context, Element element) {
         String href = element.attr("href");
         PageInfo.Uri.Board uri = new PageInfo.Uri.Board(URI.create(href)).normalizeOffset();
-        String boardName = selectFirst(element, ".subject").map(Element::text).orElse("Unknown Board");
-        String boardDescription = selectFirst(element, ".about_info").map(Element::text).orElse("");
+        String boardName = context.selectFirst(element, ".subject").map(Element::text).orElse("Unknown Board");
+        String boardDescription = context.selectFirst(element, ".about_info").map(Element::text).orElse("");
+        return new ChildBoard(uri, boardName, boardDescription);
+    }
 
-        long parentOid = new PageInfo.Uri(page.uri()).asBoard().id();
+    private void persistBoard(PageInfo.Uri.Board pageUri, ChildBoard child) {
+        PageInfo.Uri.Board uri = child.uri();
+        long parentOid = pageUri.id();
         Board parent = Board.dao().findByOid(String.valueOf(parentOid))
                 .orElseThrow(() -> new RuntimeException("Parent board not found oid=" + parentOid));
 
         if (Board.dao().findByOid(String.valueOf(uri.id())).isPresent()) {
-            service().addTask(DownloadQueue.TaskType.BOARD, uri.asPageUri(), (long) uri.id());
+            service.addTask(DownloadQueue.TaskType.BOARD, uri, (long) uri.id());
             return;
         }
 
-        Board board = Board.of(String.valueOf(uri.id()), uri.normalize().toString(), boardName, boardDescription, parent.id());
+        Board board = Board.of(String.valueOf(uri.id()), uri.normalize().toString(), child.name(), child.description(), parent.id());
         try {
             Board.dao().save(board);
         } catch (IntegrityConstraintViolationException e) {
             // ignore, board exists
         }
 
-        service().addTask(DownloadQueue.TaskType.BOARD, uri.asPageUri(), (long) uri.id());
+        service.addTask(DownloadQueue.TaskType.BOARD, uri, (long) uri.id());
     }
 
-    private void processTopicElement(Element element) {
+    private BoardTopic processTopicElement(PageProcessor context, Element element) {
         String href = element.attr("href");
         PageInfo.Uri.Topic uri = new PageInfo.Uri.Topic(URI.create(href)).normalize();
-        String title = selectFirst(element, ".message_link").map(Element::text).orElse("Unknown Topic");
+        String title = context.selectFirst(element, ".message_link").map(Element::text).orElse("Unknown Topic");
+        Optional<Element> row = Optional.ofNullable(element.closest(".windowbg"));
+        Integer replyCount = row.flatMap(e -> context.selectFirst(e, ".board_stats p"))
+                .map(stats -> REPLY_COUNT_PATTERN.matcher(stats.text()))
+                .filter(Matcher::find)
+                .map(matcher -> Integer.parseInt(matcher.group(1)))
+                .orElse(null);
+        Instant lastPostAt = row.flatMap(e -> context.selectFirst(e, ".lastpost p"))
+                .map(lastPost -> DATE_PATTERN.matcher(lastPost.text()))
+                .filter(Matcher::find)
+                .map(matcher -> Instant.parse(matcher.group(1) + "T" + matcher.group(2) + ":00Z"))
+                .orElse(null);
+        return new BoardTopic(uri, title, replyCount, lastPostAt);
+    }
 
-        long boardOid = new PageInfo.Uri(page.uri()).asBoard().id();
+    private void persistTopic(PageInfo.Uri.Board pageUri, BoardTopic boardTopic) {
+        PageInfo.Uri.Topic uri = boardTopic.uri();
+        long boardOid = pageUri.id();
         Board board = Board.dao().findByOid(String.valueOf(boardOid))
                 .orElseThrow(() -> new RuntimeException("Board not found oid=" + boardOid));
 
-        if (Topic.dao().findByOid(String.valueOf(uri.id())).isPresent()) {
-            service().addTask(DownloadQueue.TaskType.TOPIC, uri.asPageUri(), (long) uri.id());
+        Optional<Topic> existing = Topic.dao().findByOid(String.valueOf(uri.id()));
+        if (existing.isPresent()) {
+            if (!boardTopic.title().equals(existing.get().title())) {
+                Topic.dao().rename(existing.get().id(), boardTopic.title());
+            }
+            Optional<Integer> offset = boardTopic.replyCount() == null
+                    ? Optional.of(existing.get().lastPageOffset() == null ? 0 : existing.get().lastPageOffset())
+                    : existing.get().resumeOffset(boardTopic.replyCount());
+            if (offset.isEmpty()) {
+                log.debug("Topic {} has no new replies, skipping", uri);
+                return;
+            }
+            PageInfo.Uri.Topic page = uri.withOffset(offset.get());
+            service.addTask(DownloadQueue.TaskType.TOPIC, page, (long) page.id(), DownloadQueue.Priority.UPDATE);
             return;
         }
 
-        Topic topic = Topic.of(String.valueOf(uri.id()), uri.normalize().toString(), board.id()).withTitle(title);
+        Topic topic = Topic.of(String.valueOf(uri.id()), uri.normalize().toString(), board.id()).withTitle(boardTopic.title());
         try {
             Topic.dao().save(topic);
         } catch (IntegrityConstraintViolationException e) {
             // ignore, topic exists
         }
 
-        service().addTask(DownloadQueue.TaskType.TOPIC, uri.asPageUri(), (long) uri.id());
+        service.addTask(DownloadQueue.TaskType.TOPIC, uri, (long) uri.id());
     }
+
+    private record ChildBoard(PageInfo.Uri.Board uri, String name, String description) {}
+
+    private record BoardTopic(PageInfo.Uri.Topic uri, String title, Integer replyCount, Instant lastPostAt) {}
 }
@@ -6,28 +6,37 @@ import org.jsoup.nodes.Element;
 import pl.piotrmacha.lurker.domain.*;
 
 import java.net.URI;
+import java.util.List;
 
 @Slf4j
 public class IndexPageProcessor extends DelegatePageProcessor {
     public IndexPageProcessor(DownloadService service) {
         super(service);
-        setDelegate(this::processIndex);
+        setDelegate((pageInfo, document, context) -> parse(pageInfo, document, context).persist());
     }
 
-    private void processIndex(PageInfo pageInfo, Document document, PageProcessor context) {
-        forEach(".board a.info_text", this::processBoardElement);
+    @Override
+    protected PageWrite parse(PageInfo pageInfo, Document document, PageProcessor context) {
+        List<IndexBoard> boards = context.select(".board a.info_text").map(element -> processBoardElement(context, element)).toList();
+
+        return () -> boards.forEach(this::persistBoard);
     }
 
-    private void processBoardElement(Element element) {
+    private IndexBoard processBoardElement(PageProcessor context, Element element) {
         String href = element.attr("href");
         PageInfo.Uri.Board uri = new PageInfo.Uri.Board(URI.create(href)).normalize();
-        String boardName = selectFirst(element, ".subject").map(Element::text).orElse("Unknown Board");
-        String boardDescription = selectFirst(element, ".about_info").map(Element::text).orElse("");
+        String boardName = context.selectFirst(element, ".subject").map(Element::text).orElse("Unknown Board");
+        String boardDescription = context.selectFirst(element, ".about_info").map(Element::text).orElse("");
+        return new IndexBoard(uri, boardName, boardDescription);
+    }
 
-        Board board = Board.of(String.valueOf(uri.id()), uri.normalize().toString(), boardName, boardDescription);
+    private void persistBoard(IndexBoard indexBoard) {
+        PageInfo.Uri.Board uri = indexBoard.uri();
+        Board board = Board.of(String.valueOf(uri.id()), uri.normalize().toString(), indexBoard.name(), indexBoard.description());
         Board.dao().save(board);
 
-        service().addTask(DownloadQueue.TaskType.BOARD, uri.asPageUri(), (long) uri.id());
+        service.addTask(DownloadQueue.TaskType.BOARD, uri, (long) uri.id());
     }
-}
 
+    private record IndexBoard(PageInfo.Uri.Board uri, String name, String description) {}
+}
@@ -4,41 +4,61 @@ import lombok.extern.slf4j.Slf4j;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import pl.piotrmacha.lurker.domain.*;
-import pl.piotrmacha.lurker.jooq.Tables;
 
 import java.net.URI;
 import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 public class NewPostsPageProcessor extends DelegatePageProcessor {
     public NewPostsPageProcessor(DownloadService service) {
         super(service);
-        setDelegate(this::processNewPosts);
+        setDelegate((pageInfo, document, context) -> parse(pageInfo, document, context).persist());
     }
 
-    private void processNewPosts(PageInfo pageInfo, Document document, PageProcessor context) {
-        log.info("Processing new posts page {}", pageInfo.uri());
-        forEach(document, "#recent .core_posts", this::processTopic);
-        log.info("Finished page {}", pageInfo.uri());
+    @Override
+    protected PageWrite parse(PageInfo pageInfo, Document document, PageProcessor context) {
+        List<RecentTopic> topics = context.select(document, "#recent .core_posts").map(root -> processTopicElement(context, root)).toList();
+
+        return () -> {
+            log.info("Processing new posts page {}", pageInfo.uri());
+            topics.forEach(this::persistTopic);
+            log.info("Finished page {}", pageInfo.uri());
+        };
     }
 
-    private void processTopic(Element root) {
-        String boardOid = selectFirst(root, ".topic_info h5 a:nth-of-type(1)").map(e -> e.attr("href"))
+    private RecentTopic processTopicElement(PageProcessor context, Element root) {
+        String boardOid = context.selectFirst(root, ".topic_info h5 a:nth-of-type(1)").map(e -> e.attr("href"))
                 .map(url -> {
                     String[] split = url.split("=");
                     return split[split.length - 1].split("\\.")[0];
                 })
                 .orElse("none");
-        String url = selectFirst(root, ".topic_info h5 a:nth-of-type(2)").map(e -> e.attr("href")).orElse(null);
-        Board board = Board.dao().findByOid(boardOid).orElse(null);
-        if (url != null && board != null) {
-            PageInfo.Uri.Topic uri = new PageInfo.Uri.Topic(URI.create(url));
-            String title =  selectFirst(root, ".topic_info h5 a:nth-of-type(2)").map(Element::text).orElse("Unknown Topic");
+        String url = context.selectFirst(root, ".topic_info h5 a:nth-of-type(2)").map(e -> e.attr("href")).orElse(null);
+        String title =  context.selectFirst(root, ".topic_info h5 a:nth-of-type(2)").map(Element::text).orElse("Unknown Topic");
+        return new RecentTopic(boardOid, url, title);
+    }
+
+    private void persistTopic(RecentTopic recentTopic) {
+        Board board = Board.dao().findByOid(recentTopic.boardOid()).orElse(null);
+        if (recentTopic.url() != null && board != null) {
+            PageInfo.Uri.Topic uri = new PageInfo.Uri.Topic(URI.create(recentTopic.url()));
+            String title = recentTopic.title();
             String topicOid = String.valueOf(uri.id());
+            int postOid = uri.asPost().postId();
             Topic topic = Topic.dao().findByOid(topicOid)
                     .orElseGet(() -> Topic.of(String.valueOf(uri.id()), uri.normalize().toString(), board.id()).withTitle(title));
-            topic.withTitle(title).save();
-            service().addTask(DownloadQueue.TaskType.TOPIC, uri.asPageUri(), (long) uri.id());
+            topic = topic.withTitle(title).save();
+            // The recent page shows no reply counts, the id of the newest post tells if the topic changed instead
+            Optional<Integer> offset = postOid > 0 ? topic.resumeOffsetForPost(postOid) : Optional.of(0);
+            if (offset.isEmpty()) {
+                log.debug("Topic {} has no new posts, skipping", uri);
+                return;
+            }
+            PageInfo.Uri.Topic page = uri.normalizeOffset().withOffset(offset.get());
+            service.addTask(DownloadQueue.TaskType.TOPIC, page, (long) page.id(), DownloadQueue.Priority.RECENT);
         }
     }
+
+    private record RecentTopic(String boardOid, String url, String title) {}
 }
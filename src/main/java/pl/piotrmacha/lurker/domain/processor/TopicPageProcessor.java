@@ -1,90 +1,101 @@
 package pl.piotrmacha.lurker.domain.processor;
 
-import org.jooq.exception.IntegrityConstraintViolationException;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import pl.piotrmacha.lurker.domain.*;
 
 import java.time.Instant;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class TopicPageProcessor extends DelegatePageProcessor {
+    private static final Pattern DATE_PATTERN = Pattern.compile("([0-9]{4}-[0-9]{2}-[0-9]{2}), ([0-9]{2}:[0-9]{2})");
+    private static final Pattern ACCOUNT_OID_PATTERN = Pattern.compile("u=([0-9]+)");
+
     public TopicPageProcessor(DownloadService service) {
         super(service);
-        setDelegate(this::processTopic);
+        setDelegate((pageInfo, document, context) -> parse(pageInfo, document, context).persist());
     }
 
-    private void processTopic(PageInfo pageInfo, Document document, PageProcessor context) {
+    @Override
+    protected PageWrite parse(PageInfo pageInfo, Document document, PageProcessor context) {
         PageInfo.Uri.Topic topicUri = new PageInfo.Uri.Topic(pageInfo.uri());
+        List<Post.Batch.Author> authors = new ArrayList<>();
+        List<ParsedPost> posts = new ArrayList<>();
+        context.select("#forumposts .windowbg").forEach(e -> posts.add(processPost(context, e, authors)));
+        int lastOffset = lastOffset(context);
+
+        return () -> persistTopic(topicUri, authors, posts, lastOffset);
+    }
+
+    private void persistTopic(PageInfo.Uri.Topic topicUri, List<Post.Batch.Author> authors, List<ParsedPost> posts, int lastOffset) {
         Topic topic = Topic.dao().getByOid(String.valueOf(topicUri.id()));
         int offset = topicUri.offset();
 
+        Post.Batch batch = new Post.Batch(topic);
+        authors.forEach(batch::addAuthor);
+        posts.forEach(post -> batch.addPost(new Post.Batch.Entry(
+                post.oid(), topic.url() + ";msg" + post.oid(), post.authorOid(), post.content(), post.createdAt(), post.imageUrls())));
         if (offset == 0) {
-            processTopicAuthor(topic);
-            processPosts(topic);
-            schedulePages(topicUri);
-        } else {
-            processPosts(topic);
+            processTopicAuthor(batch);
         }
+        service.enqueued(Post.dao().saveBatch(batch).queuedUrls());
+
+        // Pages up to the last crawled one hold no new posts, so only the first page of a new topic and the last
+        // crawled page of a known one schedule the pages after them
+        int crawledOffset = topic.lastPageOffset() == null ? 0 : topic.lastPageOffset();
+        if (offset == 0 || offset == crawledOffset) {
+            // New pages of a known topic hold fresh posts, the rest of a new topic is backfill
+            DownloadQueue.Priority priority = topic.lastPageOffset() != null ? DownloadQueue.Priority.UPDATE : DownloadQueue.Priority.BACKFILL;
+            schedulePages(topicUri, Math.max(offset, crawledOffset), lastOffset, priority);
+        }
+
+        Long lastPostOid = posts.stream()
+                .map(post -> Long.parseLong(post.oid()))
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+        Integer replyCount = offset >= lastOffset ? offset + posts.size() - 1 : null;
+        Topic.dao().updateCrawlState(topic.id(), offset, lastPostOid, replyCount);
     }
 
-    private void processTopicAuthor(Topic topic) {
-        Account account = selectFirst("#forumposts .windowbg:first-of-type")
-                .map(this::processAccount)
+    private void processTopicAuthor(Post.Batch batch) {
+        String authorOid = batch.entries().stream()
+                .findFirst()
+                .map(Post.Batch.Entry::authorOid)
                 .orElseThrow(() -> new RuntimeException("Invalid structure"));
 
-        topic.withAuthorId(account.id()).save();
+        batch.withTopicAuthor(authorOid);
     }
 
-    private void processPosts(Topic topic) {
-        select("#forumposts .windowbg").forEach(e -> processPost(e, topic));
-    }
-
-    private void processPost(Element root, Topic topic) {
-        Account account = processAccount(root);
+    private ParsedPost processPost(PageProcessor context, Element root, List<Post.Batch.Author> authors) {
+        Post.Batch.Author author = processAccount(context, root);
+        authors.add(author);
         Instant createdAt = Instant.now();
 
-        Matcher dateMatcher = Pattern.compile("([0-9]{4}-[0-9]{2}-[0-9]{2}), ([0-9]{2}:[0-9]{2})").matcher(root.text());
+        Matcher dateMatcher = DATE_PATTERN.matcher(root.text());
         if (dateMatcher.find()) {
             String date = dateMatcher.group(1);
             String time = dateMatcher.group(2);
             createdAt = Instant.parse(date + "T" + time + ":00Z");
         }
 
-        Element body = selectFirst(root, ".post .inner").orElseThrow(() -> new RuntimeException("Invalid structure"));
+        Element body = context.selectFirst(root, ".post .inner").orElseThrow(() -> new RuntimeException("Invalid structure"));
         String postOid = body.id().split("_")[1];
         String content = body.html();
-        String url = topic.url() + ";msg" + postOid;
-
-        final Instant createdAtFinal = createdAt;
-        Post post = Post.dao().findByOid(postOid)
-                .map(p -> p.withContent(content).withLastUpdate(Instant.now()).save())
-                .orElseGet(() -> {
-                    try {
-                        return Post.of(postOid, url, account.id(), topic.id(), content, createdAtFinal)
-                                .withContent(content)
-                                .save();
-                    } catch (IntegrityConstraintViolationException e) {
-                        return Post.dao().findByOid(postOid)
-                                .map(p -> p.withContent(content).withLastUpdate(Instant.now()).save())
-                                .orElseThrow(() -> new RuntimeException("Post not found"));
-                    }
-                });
-
-        AtomicInteger attachmentCounter = new AtomicInteger(0);
-        select(body, "img").forEach(img -> {
-            String src = img.attr("src");
-            Asset asset = createAsset("topic/" + topic.oid() + "/post-" + postOid + "/" + attachmentCounter.getAndIncrement(), src);
-            Post.dao().linkAsset(post, asset.id());
-        });
+
+        List<String> imageUrls = context.select(body, "img")
+                .map(img -> img.attr("src"))
+                .filter(src -> !src.isBlank())
+                .toList();
+
+        return new ParsedPost(postOid, author.oid(), content, createdAt, imageUrls);
     }
 
-    private void schedulePages(PageInfo.Uri.Topic topicUri) {
-        int lastOffset = select("#main_content .navigate_section a.navPages")
+    private int lastOffset(PageProcessor context) {
+        return context.select("#main_content .navigate_section a.navPages")
                 .map(e -> e.attr("href"))
                 .map(href -> {
                     String[] split = href.split("\\.");
@@ -92,73 +103,29 @@ public class TopicPageProcessor extends DelegatePageProcessor {
                 })
                 .max(Comparator.naturalOrder())
                 .orElse(0);
+    }
 
+    private void schedulePages(PageInfo.Uri.Topic topicUri, int fromOffset, int lastOffset, DownloadQueue.Priority priority) {
         int increment = 20;
-        for (int i = increment; i <= lastOffset; i += increment) {
+        for (int i = fromOffset + increment; i <= lastOffset; i += increment) {
             PageInfo.Uri.Topic uri = topicUri.normalizeOffset().withOffset(i);
-            service().addTask(DownloadQueue.TaskType.TOPIC, uri.asPageUri(), (long) uri.id());
+            service.addTask(DownloadQueue.TaskType.TOPIC, uri, (long) uri.id(), priority);
         }
     }
 
-    private Account processAccount(Element postRoot) {
-        Pattern accountOidPattern = Pattern.compile("u=([0-9]+)");
-        return selectFirst(".poster")
-                .map(element -> {
-                    Element nick = selectFirst(element, ".nick a")
-                            .or(() -> selectFirst(".nick"))
-                            .orElseThrow(() -> new RuntimeException("Invalid structure"));
-                    String username = nick.text();
-                    String accountUrl = nick.hasAttr("href") ? nick.attr("href") : "guest_" + username;
-                    Matcher accountOidMatcher = accountOidPattern.matcher(accountUrl);
-                    String accountOid = accountOidMatcher.find() ? accountOidMatcher.group(1) : "guest_" + username;
-
-                    return Account.dao().findByOid(accountOid)
-                            .map(account -> {
-                                Element avatar = selectFirst(element, "img.avatar").orElse(null);
-                                if (avatar != null) {
-                                    String avatarUrl = avatar.attr("src");
-                                    Asset asset = createAsset("avatar/" + accountOid, avatarUrl);
-                                    account.withAvatarId(asset.id()).save();
-                                }
-                                return account;
-                            })
-                            .orElseGet(() -> {
-                                Element avatar = selectFirst(element, "img.avatar").orElse(null);
-                                if (avatar != null) {
-                                    String avatarUrl = avatar.attr("src");
-                                    Asset asset = createAsset("avatar/" + accountOid, avatarUrl);
-                                    try {
-                                        return Account.of(accountOid, accountUrl, username, asset.id()).save();
-                                    } catch (IntegrityConstraintViolationException e) {
-                                        return Account.dao().findByOid(accountOid)
-                                                .map(account -> account.withAvatarId(asset.id()).save())
-                                                .orElseThrow(() -> new RuntimeException("Account not found"));
-                                    }
-                                }
-
-                                try {
-                                    return Account.of(accountOid, accountUrl, username, null).save();
-                                } catch (IntegrityConstraintViolationException e) {
-                                    return Account.dao().findByOid(accountOid)
-                                            .map(account -> account.withAvatarId(null).save())
-                                            .orElseThrow(() -> new RuntimeException("Account not found"));
-                                }
-                            });
-                })
+    private Post.Batch.Author processAccount(PageProcessor context, Element postRoot) {
+        Element element = context.selectFirst(postRoot, ".poster").orElseThrow(() -> new RuntimeException("Invalid structure"));
+        Element nick = context.selectFirst(element, ".nick a")
+                .or(() -> context.selectFirst(element, ".nick"))
                 .orElseThrow(() -> new RuntimeException("Invalid structure"));
-    }
+        String username = nick.text();
+        String accountUrl = nick.hasAttr("href") ? nick.attr("href") : "guest_" + username;
+        Matcher accountOidMatcher = ACCOUNT_OID_PATTERN.matcher(accountUrl);
+        String accountOid = accountOidMatcher.find() ? accountOidMatcher.group(1) : "guest_" + username;
+        String avatarUrl = context.selectFirst(element, "img.avatar").map(avatar -> avatar.attr("src")).orElse(null);
 
-    private Asset createAsset(String name, String url) {
-        return Asset.dao().findByUrl(url)
-                .orElseGet(() -> {
-                    try {
-                        Asset asset = Asset.of(name, url).withPath(name).save();
-                        DownloadQueue.Task.of(DownloadQueue.TaskType.ASSET, asset.url(), asset.id()).save();
-                        return asset;
-                    } catch (IntegrityConstraintViolationException e) {
-                        return Asset.dao().findByUrl(url)
-                                .orElseThrow(() -> new RuntimeException("Asset not found"));
-                    }
-                });
+        return new Post.Batch.Author(accountOid, accountUrl, username, avatarUrl);
     }
+
+    private record ParsedPost(String oid, String authorOid, String content, Instant createdAt, List<String> imageUrls) {}
 }
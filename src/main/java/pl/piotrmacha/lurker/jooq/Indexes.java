@@ -12,6 +12,9 @@ import org.jooq.impl.Internal;
 import pl.piotrmacha.lurker.jooq.tables.Account;
 import pl.piotrmacha.lurker.jooq.tables.Asset;
 import pl.piotrmacha.lurker.jooq.tables.Board;
+import pl.piotrmacha.lurker.jooq.tables.DownloadQueue;
+import pl.piotrmacha.lurker.jooq.tables.DownloadQueueDone;
+import pl.piotrmacha.lurker.jooq.tables.DownloadQueueScheduled;
 import pl.piotrmacha.lurker.jooq.tables.FlywaySchemaHistory;
 import pl.piotrmacha.lurker.jooq.tables.Post;
 import pl.piotrmacha.lurker.jooq.tables.PostFulltext;
@@ -31,9 +34,18 @@ public class Indexes {
     public static final Index ACCOUNT_OID_IDX = Internal.createIndex(DSL.name("account_oid_idx"), Account.ACCOUNT, new OrderField[] { Account.ACCOUNT.OID }, true);
     public static final Index ASSET_URL_IDX = Internal.createIndex(DSL.name("asset_url_idx"), Asset.ASSET, new OrderField[] { Asset.ASSET.URL }, true);
     public static final Index BOARD_OID_IDX = Internal.createIndex(DSL.name("board_oid_idx"), Board.BOARD, new OrderField[] { Board.BOARD.OID }, true);
+    public static final Index DOWNLOAD_QUEUE_DONE_URL_IDX = Internal.createIndex(DSL.name("download_queue_done_url_idx"), DownloadQueueDone.DOWNLOAD_QUEUE_DONE, new OrderField[] { DownloadQueueDone.DOWNLOAD_QUEUE_DONE.URL, DownloadQueueDone.DOWNLOAD_QUEUE_DONE.DONE_AT }, false);
+    public static final Index DOWNLOAD_QUEUE_LOCKED_AT_IDX = Internal.createIndex(DSL.name("download_queue_locked_at_idx"), DownloadQueue.DOWNLOAD_QUEUE, new OrderField[] { DownloadQueue.DOWNLOAD_QUEUE.LOCKED_AT }, false);
+    public static final Index DOWNLOAD_QUEUE_LOCKED_BY_IDX = Internal.createIndex(DSL.name("download_queue_locked_by_idx"), DownloadQueue.DOWNLOAD_QUEUE, new OrderField[] { DownloadQueue.DOWNLOAD_QUEUE.LOCKED_BY }, false);
+    public static final Index DOWNLOAD_QUEUE_SCHEDULED_AT_IDX = Internal.createIndex(DSL.name("download_queue_scheduled_at_idx"), DownloadQueueScheduled.DOWNLOAD_QUEUE_SCHEDULED, new OrderField[] { DownloadQueueScheduled.DOWNLOAD_QUEUE_SCHEDULED.SCHEDULED_AT }, false);
+    public static final Index DOWNLOAD_QUEUE_SCHEDULED_URL_IDX = Internal.createIndex(DSL.name("download_queue_scheduled_url_idx"), DownloadQueueScheduled.DOWNLOAD_QUEUE_SCHEDULED, new OrderField[] { DownloadQueueScheduled.DOWNLOAD_QUEUE_SCHEDULED.URL }, true);
+    public static final Index DOWNLOAD_QUEUE_UNLOCKED_IDX = Internal.createIndex(DSL.name("download_queue_unlocked_idx"), DownloadQueue.DOWNLOAD_QUEUE, new OrderField[] { DownloadQueue.DOWNLOAD_QUEUE.TYPE, DownloadQueue.DOWNLOAD_QUEUE.PRIORITY.desc(), DownloadQueue.DOWNLOAD_QUEUE.CREATED_AT }, false);
+    public static final Index DOWNLOAD_QUEUE_URL_IDX = Internal.createIndex(DSL.name("download_queue_url_idx"), DownloadQueue.DOWNLOAD_QUEUE, new OrderField[] { DownloadQueue.DOWNLOAD_QUEUE.URL }, true);
     public static final Index FLYWAY_SCHEMA_HISTORY_S_IDX = Internal.createIndex(DSL.name("flyway_schema_history_s_idx"), FlywaySchemaHistory.FLYWAY_SCHEMA_HISTORY, new OrderField[] { FlywaySchemaHistory.FLYWAY_SCHEMA_HISTORY.SUCCESS }, false);
+    public static final Index POST_FULLTEXT_AUTHOR_ID_IDX = Internal.createIndex(DSL.name("post_fulltext_author_id_idx"), PostFulltext.POST_FULLTEXT, new OrderField[] { PostFulltext.POST_FULLTEXT.AUTHOR_ID }, false);
     public static final Index POST_FULLTEXT_SEARCH_VECTOR_ENGLISH_IDX = Internal.createIndex(DSL.name("post_fulltext_search_vector_english_idx"), PostFulltext.POST_FULLTEXT, new OrderField[] { PostFulltext.POST_FULLTEXT.SEARCH_VECTOR_ENGLISH }, false);
     public static final Index POST_FULLTEXT_SEARCH_VECTOR_POLISH_IDX = Internal.createIndex(DSL.name("post_fulltext_search_vector_polish_idx"), PostFulltext.POST_FULLTEXT, new OrderField[] { PostFulltext.POST_FULLTEXT.SEARCH_VECTOR_POLISH }, false);
+    public static final Index POST_FULLTEXT_TOPIC_ID_IDX = Internal.createIndex(DSL.name("post_fulltext_topic_id_idx"), PostFulltext.POST_FULLTEXT, new OrderField[] { PostFulltext.POST_FULLTEXT.TOPIC_ID }, false);
     public static final Index POST_OID_IDX = Internal.createIndex(DSL.name("post_oid_idx"), Post.POST, new OrderField[] { Post.POST.OID }, true);
     public static final Index TOPIC_OID_IDX = Internal.createIndex(DSL.name("topic_oid_idx"), Topic.TOPIC, new OrderField[] { Topic.TOPIC.OID }, true);
 }
@@ -18,10 +18,13 @@ import pl.piotrmacha.lurker.jooq.tables.DownloadQueueDone;
 import pl.piotrmacha.lurker.jooq.tables.DownloadQueueFailure;
 import pl.piotrmacha.lurker.jooq.tables.DownloadQueueScheduled;
 import pl.piotrmacha.lurker.jooq.tables.FlywaySchemaHistory;
+import pl.piotrmacha.lurker.jooq.tables.PageCache;
 import pl.piotrmacha.lurker.jooq.tables.Post;
 import pl.piotrmacha.lurker.jooq.tables.PostAttachment;
 import pl.piotrmacha.lurker.jooq.tables.PostFulltext;
+import pl.piotrmacha.lurker.jooq.tables.PostFulltextDirty;
 import pl.piotrmacha.lurker.jooq.tables.Topic;
+import pl.piotrmacha.lurker.jooq.tables.Worker;
 import pl.piotrmacha.lurker.jooq.tables.records.AccountRecord;
 import pl.piotrmacha.lurker.jooq.tables.records.AssetRecord;
 import pl.piotrmacha.lurker.jooq.tables.records.BoardRecord;
@@ -30,10 +33,13 @@ import pl.piotrmacha.lurker.jooq.tables.records.DownloadQueueFailureRecord;
 import pl.piotrmacha.lurker.jooq.tables.records.DownloadQueueRecord;
 import pl.piotrmacha.lurker.jooq.tables.records.DownloadQueueScheduledRecord;
 import pl.piotrmacha.lurker.jooq.tables.records.FlywaySchemaHistoryRecord;
+import pl.piotrmacha.lurker.jooq.tables.records.PageCacheRecord;
 import pl.piotrmacha.lurker.jooq.tables.records.PostAttachmentRecord;
+import pl.piotrmacha.lurker.jooq.tables.records.PostFulltextDirtyRecord;
 import pl.piotrmacha.lurker.jooq.tables.records.PostFulltextRecord;
 import pl.piotrmacha.lurker.jooq.tables.records.PostRecord;
 import pl.piotrmacha.lurker.jooq.tables.records.TopicRecord;
+import pl.piotrmacha.lurker.jooq.tables.records.WorkerRecord;
 
 
 /**
@@ -55,10 +61,13 @@ public class Keys {
     public static final UniqueKey<DownloadQueueFailureRecord> DOWNLOAD_QUEUE_FAILURE_PKEY = Internal.createUniqueKey(DownloadQueueFailure.DOWNLOAD_QUEUE_FAILURE, DSL.name("download_queue_failure_pkey"), new TableField[] { DownloadQueueFailure.DOWNLOAD_QUEUE_FAILURE.ID }, true);
     public static final UniqueKey<DownloadQueueScheduledRecord> DOWNLOAD_QUEUE_SCHEDULED_PKEY = Internal.createUniqueKey(DownloadQueueScheduled.DOWNLOAD_QUEUE_SCHEDULED, DSL.name("download_queue_scheduled_pkey"), new TableField[] { DownloadQueueScheduled.DOWNLOAD_QUEUE_SCHEDULED.ID }, true);
     public static final UniqueKey<FlywaySchemaHistoryRecord> FLYWAY_SCHEMA_HISTORY_PK = Internal.createUniqueKey(FlywaySchemaHistory.FLYWAY_SCHEMA_HISTORY, DSL.name("flyway_schema_history_pk"), new TableField[] { FlywaySchemaHistory.FLYWAY_SCHEMA_HISTORY.INSTALLED_RANK }, true);
+    public static final UniqueKey<PageCacheRecord> PAGE_CACHE_PKEY = Internal.createUniqueKey(PageCache.PAGE_CACHE, DSL.name("page_cache_pkey"), new TableField[] { PageCache.PAGE_CACHE.URL }, true);
     public static final UniqueKey<PostRecord> POST_PKEY = Internal.createUniqueKey(Post.POST, DSL.name("post_pkey"), new TableField[] { Post.POST.ID }, true);
     public static final UniqueKey<PostAttachmentRecord> POST_ATTACHMENT_PKEY = Internal.createUniqueKey(PostAttachment.POST_ATTACHMENT, DSL.name("post_attachment_pkey"), new TableField[] { PostAttachment.POST_ATTACHMENT.POST_ID, PostAttachment.POST_ATTACHMENT.ASSET_ID }, true);
     public static final UniqueKey<PostFulltextRecord> POST_FULLTEXT_PKEY = Internal.createUniqueKey(PostFulltext.POST_FULLTEXT, DSL.name("post_fulltext_pkey"), new TableField[] { PostFulltext.POST_FULLTEXT.POST_ID }, true);
+    public static final UniqueKey<PostFulltextDirtyRecord> POST_FULLTEXT_DIRTY_PKEY = Internal.createUniqueKey(PostFulltextDirty.POST_FULLTEXT_DIRTY, DSL.name("post_fulltext_dirty_pkey"), new TableField[] { PostFulltextDirty.POST_FULLTEXT_DIRTY.POST_ID }, true);
     public static final UniqueKey<TopicRecord> TOPIC_PKEY = Internal.createUniqueKey(Topic.TOPIC, DSL.name("topic_pkey"), new TableField[] { Topic.TOPIC.ID }, true);
+    public static final UniqueKey<WorkerRecord> WORKER_PKEY = Internal.createUniqueKey(Worker.WORKER, DSL.name("worker_pkey"), new TableField[] { Worker.WORKER.ID }, true);
 
     // -------------------------------------------------------------------------
     // FOREIGN KEY definitions
@@ -19,10 +19,13 @@ import pl.piotrmacha.lurker.jooq.tables.DownloadQueueDone;
 import pl.piotrmacha.lurker.jooq.tables.DownloadQueueFailure;
 import pl.piotrmacha.lurker.jooq.tables.DownloadQueueScheduled;
 import pl.piotrmacha.lurker.jooq.tables.FlywaySchemaHistory;
+import pl.piotrmacha.lurker.jooq.tables.PageCache;
 import pl.piotrmacha.lurker.jooq.tables.Post;
 import pl.piotrmacha.lurker.jooq.tables.PostAttachment;
 import pl.piotrmacha.lurker.jooq.tables.PostFulltext;
+import pl.piotrmacha.lurker.jooq.tables.PostFulltextDirty;
 import pl.piotrmacha.lurker.jooq.tables.Topic;
+import pl.piotrmacha.lurker.jooq.tables.Worker;
 
 
 /**
@@ -78,6 +81,11 @@ public class Public extends SchemaImpl {
      */
     public final FlywaySchemaHistory FLYWAY_SCHEMA_HISTORY = FlywaySchemaHistory.FLYWAY_SCHEMA_HISTORY;
 
+    /**
+     * The table <code>public.page_cache</code>.
+     */
+    public final PageCache PAGE_CACHE = PageCache.PAGE_CACHE;
+
     /**
      * The table <code>public.post</code>.
      */
@@ -93,11 +101,21 @@ public class Public extends SchemaImpl {
      */
     public final PostFulltext POST_FULLTEXT = PostFulltext.POST_FULLTEXT;
 
+    /**
+     * The table <code>public.post_fulltext_dirty</code>.
+     */
+    public final PostFulltextDirty POST_FULLTEXT_DIRTY = PostFulltextDirty.POST_FULLTEXT_DIRTY;
+
     /**
      * The table <code>public.topic</code>.
      */
     public final Topic TOPIC = Topic.TOPIC;
 
+    /**
+     * The table <code>public.worker</code>.
+     */
+    public final Worker WORKER = Worker.WORKER;
+
     /**
      * No further instances allowed
      */
@@ -122,10 +140,13 @@ public class Public extends SchemaImpl {
             DownloadQueueFailure.DOWNLOAD_QUEUE_FAILURE,
             DownloadQueueScheduled.DOWNLOAD_QUEUE_SCHEDULED,
             FlywaySchemaHistory.FLYWAY_SCHEMA_HISTORY,
+            PageCache.PAGE_CACHE,
             Post.POST,
             PostAttachment.POST_ATTACHMENT,
             PostFulltext.POST_FULLTEXT,
-            Topic.TOPIC
+            PostFulltextDirty.POST_FULLTEXT_DIRTY,
+            Topic.TOPIC,
+            Worker.WORKER
         );
     }
 }
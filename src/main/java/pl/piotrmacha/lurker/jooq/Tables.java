@@ -12,10 +12,13 @@ import pl.piotrmacha.lurker.jooq.tables.DownloadQueueDone;
 import pl.piotrmacha.lurker.jooq.tables.DownloadQueueFailure;
 import pl.piotrmacha.lurker.jooq.tables.DownloadQueueScheduled;
 import pl.piotrmacha.lurker.jooq.tables.FlywaySchemaHistory;
+import pl.piotrmacha.lurker.jooq.tables.PageCache;
 import pl.piotrmacha.lurker.jooq.tables.Post;
 import pl.piotrmacha.lurker.jooq.tables.PostAttachment;
 import pl.piotrmacha.lurker.jooq.tables.PostFulltext;
+import pl.piotrmacha.lurker.jooq.tables.PostFulltextDirty;
 import pl.piotrmacha.lurker.jooq.tables.Topic;
+import pl.piotrmacha.lurker.jooq.tables.Worker;
 
 
 /**
@@ -64,6 +67,11 @@ public class Tables {
      */
     public static final FlywaySchemaHistory FLYWAY_SCHEMA_HISTORY = FlywaySchemaHistory.FLYWAY_SCHEMA_HISTORY;
 
+    /**
+     * The table <code>public.page_cache</code>.
+     */
+    public static final PageCache PAGE_CACHE = PageCache.PAGE_CACHE;
+
     /**
      * The table <code>public.post</code>.
      */
@@ -79,8 +87,18 @@ public class Tables {
      */
     public static final PostFulltext POST_FULLTEXT = PostFulltext.POST_FULLTEXT;
 
+    /**
+     * The table <code>public.post_fulltext_dirty</code>.
+     */
+    public static final PostFulltextDirty POST_FULLTEXT_DIRTY = PostFulltextDirty.POST_FULLTEXT_DIRTY;
+
     /**
      * The table <code>public.topic</code>.
      */
     public static final Topic TOPIC = Topic.TOPIC;
+
+    /**
+     * The table <code>public.worker</code>.
+     */
+    public static final Worker WORKER = Worker.WORKER;
 }
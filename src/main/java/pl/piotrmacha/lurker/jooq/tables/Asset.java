@@ -97,6 +97,21 @@ public class Asset extends TableImpl<AssetRecord> {
      */
     public final TableField<AssetRecord, OffsetDateTime> LAST_UPDATE = createField(DSL.name("last_update"), SQLDataType.TIMESTAMPWITHTIMEZONE(6).nullable(false).defaultValue(DSL.field(DSL.raw("now()"), SQLDataType.TIMESTAMPWITHTIMEZONE)), this, "");
 
+    /**
+     * The column <code>public.asset.etag</code>.
+     */
+    public final TableField<AssetRecord, String> ETAG = createField(DSL.name("etag"), SQLDataType.CLOB, this, "");
+
+    /**
+     * The column <code>public.asset.last_modified</code>.
+     */
+    public final TableField<AssetRecord, String> LAST_MODIFIED = createField(DSL.name("last_modified"), SQLDataType.CLOB, this, "");
+
+    /**
+     * The column <code>public.asset.content_hash</code>.
+     */
+    public final TableField<AssetRecord, String> CONTENT_HASH = createField(DSL.name("content_hash"), SQLDataType.CLOB, this, "");
+
     private Asset(Name alias, Table<AssetRecord> aliased) {
         this(alias, aliased, (Field<?>[]) null, null);
     }
@@ -96,6 +96,21 @@ public class Board extends TableImpl<BoardRecord> {
      */
     public final TableField<BoardRecord, OffsetDateTime> LAST_UPDATE = createField(DSL.name("last_update"), SQLDataType.TIMESTAMPWITHTIMEZONE(6).nullable(false).defaultValue(DSL.field(DSL.raw("now()"), SQLDataType.TIMESTAMPWITHTIMEZONE)), this, "");
 
+    /**
+     * The column <code>public.board.last_post_at</code>.
+     */
+    public final TableField<BoardRecord, OffsetDateTime> LAST_POST_AT = createField(DSL.name("last_post_at"), SQLDataType.TIMESTAMPWITHTIMEZONE(6), this, "");
+
+    /**
+     * The column <code>public.board.indexed_until</code>.
+     */
+    public final TableField<BoardRecord, OffsetDateTime> INDEXED_UNTIL = createField(DSL.name("indexed_until"), SQLDataType.TIMESTAMPWITHTIMEZONE(6), this, "");
+
+    /**
+     * The column <code>public.board.pending_last_post_at</code>.
+     */
+    public final TableField<BoardRecord, OffsetDateTime> PENDING_LAST_POST_AT = createField(DSL.name("pending_last_post_at"), SQLDataType.TIMESTAMPWITHTIMEZONE(6), this, "");
+
     private Board(Name alias, Table<BoardRecord> aliased) {
         this(alias, aliased, (Field<?>[]) null, null);
     }
@@ -13,6 +13,7 @@ import org.jooq.Check;
 import org.jooq.Condition;
 import org.jooq.Field;
 import org.jooq.Identity;
+import org.jooq.Index;
 import org.jooq.Name;
 import org.jooq.PlainSQL;
 import org.jooq.QueryPart;
@@ -29,6 +30,7 @@ import org.jooq.impl.Internal;
 import org.jooq.impl.SQLDataType;
 import org.jooq.impl.TableImpl;
 
+import pl.piotrmacha.lurker.jooq.Indexes;
 import pl.piotrmacha.lurker.jooq.Keys;
 import pl.piotrmacha.lurker.jooq.Public;
 import pl.piotrmacha.lurker.jooq.tables.records.DownloadQueueRecord;
@@ -85,6 +87,26 @@ public class DownloadQueue extends TableImpl<DownloadQueueRecord> {
      */
     public final TableField<DownloadQueueRecord, OffsetDateTime> CREATED_AT = createField(DSL.name("created_at"), SQLDataType.TIMESTAMPWITHTIMEZONE(6).nullable(false).defaultValue(DSL.field(DSL.raw("now()"), SQLDataType.TIMESTAMPWITHTIMEZONE)), this, "");
 
+    /**
+     * The column <code>public.download_queue.locked_by</code>.
+     */
+    public final TableField<DownloadQueueRecord, String> LOCKED_BY = createField(DSL.name("locked_by"), SQLDataType.CLOB, this, "");
+
+    /**
+     * The column <code>public.download_queue.priority</code>.
+     */
+    public final TableField<DownloadQueueRecord, Integer> PRIORITY = createField(DSL.name("priority"), SQLDataType.INTEGER.nullable(false).defaultValue(DSL.field(DSL.raw("0"), SQLDataType.INTEGER)), this, "");
+
+    /**
+     * The column <code>public.download_queue.attempts</code>.
+     */
+    public final TableField<DownloadQueueRecord, Integer> ATTEMPTS = createField(DSL.name("attempts"), SQLDataType.INTEGER.nullable(false).defaultValue(DSL.field(DSL.raw("0"), SQLDataType.INTEGER)), this, "");
+
+    /**
+     * The column <code>public.download_queue.not_before</code>.
+     */
+    public final TableField<DownloadQueueRecord, OffsetDateTime> NOT_BEFORE = createField(DSL.name("not_before"), SQLDataType.TIMESTAMPWITHTIMEZONE(6), this, "");
+
     private DownloadQueue(Name alias, Table<DownloadQueueRecord> aliased) {
         this(alias, aliased, (Field<?>[]) null, null);
     }
@@ -119,6 +141,11 @@ public class DownloadQueue extends TableImpl<DownloadQueueRecord> {
         return aliased() ? null : Public.PUBLIC;
     }
 
+    @Override
+    public List<Index> getIndexes() {
+        return Arrays.asList(Indexes.DOWNLOAD_QUEUE_LOCKED_AT_IDX, Indexes.DOWNLOAD_QUEUE_LOCKED_BY_IDX, Indexes.DOWNLOAD_QUEUE_UNLOCKED_IDX, Indexes.DOWNLOAD_QUEUE_URL_IDX);
+    }
+
     @Override
     public Identity<DownloadQueueRecord, Long> getIdentity() {
         return (Identity<DownloadQueueRecord, Long>) super.getIdentity();
@@ -132,7 +159,7 @@ public class DownloadQueue extends TableImpl<DownloadQueueRecord> {
     @Override
     public List<Check<DownloadQueueRecord>> getChecks() {
         return Arrays.asList(
-            Internal.createCheck(this, DSL.name("download_queue_type_check"), "((type = ANY (ARRAY['ASSET'::text, 'BOARD'::text, 'TOPIC'::text])))", true)
+            Internal.createCheck(this, DSL.name("download_queue_type_check"), "((type = ANY (ARRAY['ASSET'::text, 'BOARD'::text, 'RECENT'::text, 'TOPIC'::text])))", true)
         );
     }
 
@@ -12,6 +12,7 @@ import java.util.List;
 import org.jooq.Check;
 import org.jooq.Condition;
 import org.jooq.Field;
+import org.jooq.Index;
 import org.jooq.Name;
 import org.jooq.PlainSQL;
 import org.jooq.QueryPart;
@@ -28,6 +29,7 @@ import org.jooq.impl.Internal;
 import org.jooq.impl.SQLDataType;
 import org.jooq.impl.TableImpl;
 
+import pl.piotrmacha.lurker.jooq.Indexes;
 import pl.piotrmacha.lurker.jooq.Keys;
 import pl.piotrmacha.lurker.jooq.Public;
 import pl.piotrmacha.lurker.jooq.tables.records.DownloadQueueDoneRecord;
@@ -118,6 +120,11 @@ public class DownloadQueueDone extends TableImpl<DownloadQueueDoneRecord> {
         return aliased() ? null : Public.PUBLIC;
     }
 
+    @Override
+    public List<Index> getIndexes() {
+        return Arrays.asList(Indexes.DOWNLOAD_QUEUE_DONE_URL_IDX);
+    }
+
     @Override
     public UniqueKey<DownloadQueueDoneRecord> getPrimaryKey() {
         return Keys.DOWNLOAD_QUEUE_DONE_PKEY;
@@ -126,7 +133,7 @@ public class DownloadQueueDone extends TableImpl<DownloadQueueDoneRecord> {
     @Override
     public List<Check<DownloadQueueDoneRecord>> getChecks() {
         return Arrays.asList(
-            Internal.createCheck(this, DSL.name("download_queue_done_type_check"), "((type = ANY (ARRAY['ASSET'::text, 'BOARD'::text, 'TOPIC'::text])))", true)
+            Internal.createCheck(this, DSL.name("download_queue_done_type_check"), "((type = ANY (ARRAY['ASSET'::text, 'BOARD'::text, 'RECENT'::text, 'TOPIC'::text])))", true)
         );
     }
 
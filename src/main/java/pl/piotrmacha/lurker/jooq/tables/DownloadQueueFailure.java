@@ -138,7 +138,7 @@ public class DownloadQueueFailure extends TableImpl<DownloadQueueFailureRecord>
     @Override
     public List<Check<DownloadQueueFailureRecord>> getChecks() {
         return Arrays.asList(
-            Internal.createCheck(this, DSL.name("download_queue_failure_type_check"), "((type = ANY (ARRAY['ASSET'::text, 'BOARD'::text, 'TOPIC'::text])))", true)
+            Internal.createCheck(this, DSL.name("download_queue_failure_type_check"), "((type = ANY (ARRAY['ASSET'::text, 'BOARD'::text, 'RECENT'::text, 'TOPIC'::text])))", true)
         );
     }
 
@@ -13,6 +13,7 @@ import org.jooq.Check;
 import org.jooq.Condition;
 import org.jooq.Field;
 import org.jooq.Identity;
+import org.jooq.Index;
 import org.jooq.Name;
 import org.jooq.PlainSQL;
 import org.jooq.QueryPart;
@@ -29,6 +30,7 @@ import org.jooq.impl.Internal;
 import org.jooq.impl.SQLDataType;
 import org.jooq.impl.TableImpl;
 
+import pl.piotrmacha.lurker.jooq.Indexes;
 import pl.piotrmacha.lurker.jooq.Keys;
 import pl.piotrmacha.lurker.jooq.Public;
 import pl.piotrmacha.lurker.jooq.tables.records.DownloadQueueScheduledRecord;
@@ -85,6 +87,16 @@ public class DownloadQueueScheduled extends TableImpl<DownloadQueueScheduledReco
      */
     public final TableField<DownloadQueueScheduledRecord, OffsetDateTime> SCHEDULED_AT = createField(DSL.name("scheduled_at"), SQLDataType.TIMESTAMPWITHTIMEZONE(6).nullable(false), this, "");
 
+    /**
+     * The column <code>public.download_queue_scheduled.repeat_every_seconds</code>.
+     */
+    public final TableField<DownloadQueueScheduledRecord, Long> REPEAT_EVERY_SECONDS = createField(DSL.name("repeat_every_seconds"), SQLDataType.BIGINT, this, "");
+
+    /**
+     * The column <code>public.download_queue_scheduled.priority</code>.
+     */
+    public final TableField<DownloadQueueScheduledRecord, Integer> PRIORITY = createField(DSL.name("priority"), SQLDataType.INTEGER.nullable(false).defaultValue(DSL.field(DSL.raw("0"), SQLDataType.INTEGER)), this, "");
+
     private DownloadQueueScheduled(Name alias, Table<DownloadQueueScheduledRecord> aliased) {
         this(alias, aliased, (Field<?>[]) null, null);
     }
@@ -121,6 +133,11 @@ public class DownloadQueueScheduled extends TableImpl<DownloadQueueScheduledReco
         return aliased() ? null : Public.PUBLIC;
     }
 
+    @Override
+    public List<Index> getIndexes() {
+        return Arrays.asList(Indexes.DOWNLOAD_QUEUE_SCHEDULED_AT_IDX, Indexes.DOWNLOAD_QUEUE_SCHEDULED_URL_IDX);
+    }
+
     @Override
     public Identity<DownloadQueueScheduledRecord, Long> getIdentity() {
         return (Identity<DownloadQueueScheduledRecord, Long>) super.getIdentity();
@@ -134,7 +151,7 @@ public class DownloadQueueScheduled extends TableImpl<DownloadQueueScheduledReco
     @Override
     public List<Check<DownloadQueueScheduledRecord>> getChecks() {
         return Arrays.asList(
-            Internal.createCheck(this, DSL.name("download_queue_scheduled_type_check"), "((type = ANY (ARRAY['ASSET'::text, 'BOARD'::text, 'TOPIC'::text])))", true)
+            Internal.createCheck(this, DSL.name("download_queue_scheduled_type_check"), "((type = ANY (ARRAY['ASSET'::text, 'BOARD'::text, 'RECENT'::text, 'TOPIC'::text])))", true)
         );
     }
 
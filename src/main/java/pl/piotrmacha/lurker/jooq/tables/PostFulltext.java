@@ -27,7 +27,6 @@ import org.jooq.TableField;
 import org.jooq.TableOptions;
 import org.jooq.UniqueKey;
 import org.jooq.impl.DSL;
-import org.jooq.impl.DefaultDataType;
 import org.jooq.impl.SQLDataType;
 import org.jooq.impl.TableImpl;
 
@@ -92,26 +91,14 @@ public class PostFulltext extends TableImpl<PostFulltextRecord> {
     public final TableField<PostFulltextRecord, String> AUTHOR = createField(DSL.name("author"), SQLDataType.CLOB, this, "");
 
     /**
-     * @deprecated Unknown data type. If this is a qualified, user-defined type,
-     * it may have been excluded from code generation. If this is a built-in
-     * type, you can define an explicit {@link org.jooq.Binding} to specify how
-     * this type should be handled. Deprecation can be turned off using
-     * {@literal <deprecationOnUnknownTypes/>} in your code generator
-     * configuration.
+     * The column <code>public.post_fulltext.search_vector_english</code>.
      */
-    @Deprecated
-    public final TableField<PostFulltextRecord, Object> SEARCH_VECTOR_ENGLISH = createField(DSL.name("search_vector_english"), DefaultDataType.getDefaultDataType("\"pg_catalog\".\"tsvector\""), this, "");
+    public final TableField<PostFulltextRecord, Object> SEARCH_VECTOR_ENGLISH = createField(DSL.name("search_vector_english"), SQLDataType.OTHER, this, "");
 
     /**
-     * @deprecated Unknown data type. If this is a qualified, user-defined type,
-     * it may have been excluded from code generation. If this is a built-in
-     * type, you can define an explicit {@link org.jooq.Binding} to specify how
-     * this type should be handled. Deprecation can be turned off using
-     * {@literal <deprecationOnUnknownTypes/>} in your code generator
-     * configuration.
+     * The column <code>public.post_fulltext.search_vector_polish</code>.
      */
-    @Deprecated
-    public final TableField<PostFulltextRecord, Object> SEARCH_VECTOR_POLISH = createField(DSL.name("search_vector_polish"), DefaultDataType.getDefaultDataType("\"pg_catalog\".\"tsvector\""), this, "");
+    public final TableField<PostFulltextRecord, Object> SEARCH_VECTOR_POLISH = createField(DSL.name("search_vector_polish"), SQLDataType.OTHER, this, "");
 
     private PostFulltext(Name alias, Table<PostFulltextRecord> aliased) {
         this(alias, aliased, (Field<?>[]) null, null);
@@ -182,7 +169,7 @@ public class PostFulltext extends TableImpl<PostFulltextRecord> {
 
     @Override
     public List<Index> getIndexes() {
-        return Arrays.asList(Indexes.POST_FULLTEXT_SEARCH_VECTOR_ENGLISH_IDX, Indexes.POST_FULLTEXT_SEARCH_VECTOR_POLISH_IDX);
+        return Arrays.asList(Indexes.POST_FULLTEXT_AUTHOR_ID_IDX, Indexes.POST_FULLTEXT_SEARCH_VECTOR_ENGLISH_IDX, Indexes.POST_FULLTEXT_SEARCH_VECTOR_POLISH_IDX, Indexes.POST_FULLTEXT_TOPIC_ID_IDX);
     }
 
     @Override
@@ -103,6 +103,21 @@ public class Topic extends TableImpl<TopicRecord> {
      */
     public final TableField<TopicRecord, OffsetDateTime> LAST_UPDATE = createField(DSL.name("last_update"), SQLDataType.TIMESTAMPWITHTIMEZONE(6).nullable(false).defaultValue(DSL.field(DSL.raw("now()"), SQLDataType.TIMESTAMPWITHTIMEZONE)), this, "");
 
+    /**
+     * The column <code>public.topic.reply_count</code>.
+     */
+    public final TableField<TopicRecord, Integer> REPLY_COUNT = createField(DSL.name("reply_count"), SQLDataType.INTEGER, this, "");
+
+    /**
+     * The column <code>public.topic.last_page_offset</code>.
+     */
+    public final TableField<TopicRecord, Integer> LAST_PAGE_OFFSET = createField(DSL.name("last_page_offset"), SQLDataType.INTEGER, this, "");
+
+    /**
+     * The column <code>public.topic.last_post_oid</code>.
+     */
+    public final TableField<TopicRecord, Long> LAST_POST_OID = createField(DSL.name("last_post_oid"), SQLDataType.BIGINT, this, "");
+
     private Topic(Name alias, Table<TopicRecord> aliased) {
         this(alias, aliased, (Field<?>[]) null, null);
     }
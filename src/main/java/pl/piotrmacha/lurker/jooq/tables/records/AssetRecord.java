@@ -118,6 +118,48 @@ public class AssetRecord extends UpdatableRecordImpl<AssetRecord> {
         return (OffsetDateTime) get(6);
     }
 
+    /**
+     * Setter for <code>public.asset.etag</code>.
+     */
+    public void setEtag(String value) {
+        set(7, value);
+    }
+
+    /**
+     * Getter for <code>public.asset.etag</code>.
+     */
+    public String getEtag() {
+        return (String) get(7);
+    }
+
+    /**
+     * Setter for <code>public.asset.last_modified</code>.
+     */
+    public void setLastModified(String value) {
+        set(8, value);
+    }
+
+    /**
+     * Getter for <code>public.asset.last_modified</code>.
+     */
+    public String getLastModified() {
+        return (String) get(8);
+    }
+
+    /**
+     * Setter for <code>public.asset.content_hash</code>.
+     */
+    public void setContentHash(String value) {
+        set(9, value);
+    }
+
+    /**
+     * Getter for <code>public.asset.content_hash</code>.
+     */
+    public String getContentHash() {
+        return (String) get(9);
+    }
+
     // -------------------------------------------------------------------------
     // Primary key information
     // -------------------------------------------------------------------------
@@ -141,7 +183,7 @@ public class AssetRecord extends UpdatableRecordImpl<AssetRecord> {
     /**
      * Create a detached, initialised AssetRecord
      */
-    public AssetRecord(Long id, String name, String url, String path, String mimeType, Long size, OffsetDateTime lastUpdate) {
+    public AssetRecord(Long id, String name, String url, String path, String mimeType, Long size, OffsetDateTime lastUpdate, String etag, String lastModified, String contentHash) {
         super(Asset.ASSET);
 
         setId(id);
@@ -151,6 +193,9 @@ public class AssetRecord extends UpdatableRecordImpl<AssetRecord> {
         setMimeType(mimeType);
         setSize(size);
         setLastUpdate(lastUpdate);
+        setEtag(etag);
+        setLastModified(lastModified);
+        setContentHash(contentHash);
         resetChangedOnNotNull();
     }
 }
@@ -118,6 +118,48 @@ public class BoardRecord extends UpdatableRecordImpl<BoardRecord> {
         return (OffsetDateTime) get(6);
     }
 
+    /**
+     * Setter for <code>public.board.last_post_at</code>.
+     */
+    public void setLastPostAt(OffsetDateTime value) {
+        set(7, value);
+    }
+
+    /**
+     * Getter for <code>public.board.last_post_at</code>.
+     */
+    public OffsetDateTime getLastPostAt() {
+        return (OffsetDateTime) get(7);
+    }
+
+    /**
+     * Setter for <code>public.board.indexed_until</code>.
+     */
+    public void setIndexedUntil(OffsetDateTime value) {
+        set(8, value);
+    }
+
+    /**
+     * Getter for <code>public.board.indexed_until</code>.
+     */
+    public OffsetDateTime getIndexedUntil() {
+        return (OffsetDateTime) get(8);
+    }
+
+    /**
+     * Setter for <code>public.board.pending_last_post_at</code>.
+     */
+    public void setPendingLastPostAt(OffsetDateTime value) {
+        set(9, value);
+    }
+
+    /**
+     * Getter for <code>public.board.pending_last_post_at</code>.
+     */
+    public OffsetDateTime getPendingLastPostAt() {
+        return (OffsetDateTime) get(9);
+    }
+
     // -------------------------------------------------------------------------
     // Primary key information
     // -------------------------------------------------------------------------
@@ -141,7 +183,7 @@ public class BoardRecord extends UpdatableRecordImpl<BoardRecord> {
     /**
      * Create a detached, initialised BoardRecord
      */
-    public BoardRecord(Long id, String oid, String url, String name, String description, Long parentId, OffsetDateTime lastUpdate) {
+    public BoardRecord(Long id, String oid, String url, String name, String description, Long parentId, OffsetDateTime lastUpdate, OffsetDateTime lastPostAt, OffsetDateTime indexedUntil, OffsetDateTime pendingLastPostAt) {
         super(Board.BOARD);
 
         setId(id);
@@ -151,6 +193,9 @@ public class BoardRecord extends UpdatableRecordImpl<BoardRecord> {
         setDescription(description);
         setParentId(parentId);
         setLastUpdate(lastUpdate);
+        setLastPostAt(lastPostAt);
+        setIndexedUntil(indexedUntil);
+        setPendingLastPostAt(pendingLastPostAt);
         resetChangedOnNotNull();
     }
 }
@@ -104,6 +104,62 @@ public class DownloadQueueRecord extends UpdatableRecordImpl<DownloadQueueRecord
         return (OffsetDateTime) get(5);
     }
 
+    /**
+     * Setter for <code>public.download_queue.locked_by</code>.
+     */
+    public void setLockedBy(String value) {
+        set(6, value);
+    }
+
+    /**
+     * Getter for <code>public.download_queue.locked_by</code>.
+     */
+    public String getLockedBy() {
+        return (String) get(6);
+    }
+
+    /**
+     * Setter for <code>public.download_queue.priority</code>.
+     */
+    public void setPriority(Integer value) {
+        set(7, value);
+    }
+
+    /**
+     * Getter for <code>public.download_queue.priority</code>.
+     */
+    public Integer getPriority() {
+        return (Integer) get(7);
+    }
+
+    /**
+     * Setter for <code>public.download_queue.attempts</code>.
+     */
+    public void setAttempts(Integer value) {
+        set(8, value);
+    }
+
+    /**
+     * Getter for <code>public.download_queue.attempts</code>.
+     */
+    public Integer getAttempts() {
+        return (Integer) get(8);
+    }
+
+    /**
+     * Setter for <code>public.download_queue.not_before</code>.
+     */
+    public void setNotBefore(OffsetDateTime value) {
+        set(9, value);
+    }
+
+    /**
+     * Getter for <code>public.download_queue.not_before</code>.
+     */
+    public OffsetDateTime getNotBefore() {
+        return (OffsetDateTime) get(9);
+    }
+
     // -------------------------------------------------------------------------
     // Primary key information
     // -------------------------------------------------------------------------
@@ -127,7 +183,7 @@ public class DownloadQueueRecord extends UpdatableRecordImpl<DownloadQueueRecord
     /**
      * Create a detached, initialised DownloadQueueRecord
      */
-    public DownloadQueueRecord(Long id, String type, String url, Long entityId, OffsetDateTime lockedAt, OffsetDateTime createdAt) {
+    public DownloadQueueRecord(Long id, String type, String url, Long entityId, OffsetDateTime lockedAt, OffsetDateTime createdAt, String lockedBy, Integer priority, Integer attempts, OffsetDateTime notBefore) {
         super(DownloadQueue.DOWNLOAD_QUEUE);
 
         setId(id);
@@ -136,6 +192,10 @@ public class DownloadQueueRecord extends UpdatableRecordImpl<DownloadQueueRecord
         setEntityId(entityId);
         setLockedAt(lockedAt);
         setCreatedAt(createdAt);
+        setLockedBy(lockedBy);
+        setPriority(priority);
+        setAttempts(attempts);
+        setNotBefore(notBefore);
         resetChangedOnNotNull();
     }
 }
@@ -104,6 +104,34 @@ public class DownloadQueueScheduledRecord extends UpdatableRecordImpl<DownloadQu
         return (OffsetDateTime) get(5);
     }
 
+    /**
+     * Setter for <code>public.download_queue_scheduled.repeat_every_seconds</code>.
+     */
+    public void setRepeatEverySeconds(Long value) {
+        set(6, value);
+    }
+
+    /**
+     * Getter for <code>public.download_queue_scheduled.repeat_every_seconds</code>.
+     */
+    public Long getRepeatEverySeconds() {
+        return (Long) get(6);
+    }
+
+    /**
+     * Setter for <code>public.download_queue_scheduled.priority</code>.
+     */
+    public void setPriority(Integer value) {
+        set(7, value);
+    }
+
+    /**
+     * Getter for <code>public.download_queue_scheduled.priority</code>.
+     */
+    public Integer getPriority() {
+        return (Integer) get(7);
+    }
+
     // -------------------------------------------------------------------------
     // Primary key information
     // -------------------------------------------------------------------------
@@ -127,7 +155,7 @@ public class DownloadQueueScheduledRecord extends UpdatableRecordImpl<DownloadQu
     /**
      * Create a detached, initialised DownloadQueueScheduledRecord
      */
-    public DownloadQueueScheduledRecord(Long id, String type, String url, Long entityId, OffsetDateTime createdAt, OffsetDateTime scheduledAt) {
+    public DownloadQueueScheduledRecord(Long id, String type, String url, Long entityId, OffsetDateTime createdAt, OffsetDateTime scheduledAt, Long repeatEverySeconds, Integer priority) {
         super(DownloadQueueScheduled.DOWNLOAD_QUEUE_SCHEDULED);
 
         setId(id);
@@ -136,6 +164,8 @@ public class DownloadQueueScheduledRecord extends UpdatableRecordImpl<DownloadQu
         setEntityId(entityId);
         setCreatedAt(createdAt);
         setScheduledAt(scheduledAt);
+        setRepeatEverySeconds(repeatEverySeconds);
+        setPriority(priority);
         resetChangedOnNotNull();
     }
 }
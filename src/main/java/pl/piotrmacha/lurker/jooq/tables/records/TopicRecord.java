@@ -132,6 +132,48 @@ public class TopicRecord extends UpdatableRecordImpl<TopicRecord> {
         return (OffsetDateTime) get(7);
     }
 
+    /**
+     * Setter for <code>public.topic.reply_count</code>.
+     */
+    public void setReplyCount(Integer value) {
+        set(8, value);
+    }
+
+    /**
+     * Getter for <code>public.topic.reply_count</code>.
+     */
+    public Integer getReplyCount() {
+        return (Integer) get(8);
+    }
+
+    /**
+     * Setter for <code>public.topic.last_page_offset</code>.
+     */
+    public void setLastPageOffset(Integer value) {
+        set(9, value);
+    }
+
+    /**
+     * Getter for <code>public.topic.last_page_offset</code>.
+     */
+    public Integer getLastPageOffset() {
+        return (Integer) get(9);
+    }
+
+    /**
+     * Setter for <code>public.topic.last_post_oid</code>.
+     */
+    public void setLastPostOid(Long value) {
+        set(10, value);
+    }
+
+    /**
+     * Getter for <code>public.topic.last_post_oid</code>.
+     */
+    public Long getLastPostOid() {
+        return (Long) get(10);
+    }
+
     // -------------------------------------------------------------------------
     // Primary key information
     // -------------------------------------------------------------------------
@@ -155,7 +197,7 @@ public class TopicRecord extends UpdatableRecordImpl<TopicRecord> {
     /**
      * Create a detached, initialised TopicRecord
      */
-    public TopicRecord(Long id, String oid, String url, String title, Long authorId, Long boardId, OffsetDateTime createdAt, OffsetDateTime lastUpdate) {
+    public TopicRecord(Long id, String oid, String url, String title, Long authorId, Long boardId, OffsetDateTime createdAt, OffsetDateTime lastUpdate, Integer replyCount, Integer lastPageOffset, Long lastPostOid) {
         super(Topic.TOPIC);
 
         setId(id);
@@ -166,6 +208,9 @@ public class TopicRecord extends UpdatableRecordImpl<TopicRecord> {
         setBoardId(boardId);
         setCreatedAt(createdAt);
         setLastUpdate(lastUpdate);
+        setReplyCount(replyCount);
+        setLastPageOffset(lastPageOffset);
+        setLastPostOid(lastPostOid);
         resetChangedOnNotNull();
     }
 }
@@ -0,0 +1,5 @@
+alter table download_queue
+    add column priority integer not null default 0;
+
+drop index download_queue_unlocked_idx;
+create index download_queue_unlocked_idx on download_queue (type, priority desc, created_at) where locked_at is null;
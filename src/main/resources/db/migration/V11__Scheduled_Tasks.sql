@@ -0,0 +1,19 @@
+alter table download_queue
+    drop constraint download_queue_type_check,
+    add constraint download_queue_type_check check ( type in ('ASSET', 'BOARD', 'RECENT', 'TOPIC') );
+alter table download_queue_done
+    drop constraint download_queue_done_type_check,
+    add constraint download_queue_done_type_check check ( type in ('ASSET', 'BOARD', 'RECENT', 'TOPIC') );
+alter table download_queue_failure
+    drop constraint download_queue_failure_type_check,
+    add constraint download_queue_failure_type_check check ( type in ('ASSET', 'BOARD', 'RECENT', 'TOPIC') );
+alter table download_queue_scheduled
+    drop constraint download_queue_scheduled_type_check,
+    add constraint download_queue_scheduled_type_check check ( type in ('ASSET', 'BOARD', 'RECENT', 'TOPIC') );
+
+alter table download_queue_scheduled
+    add column repeat_every_seconds bigint,
+    add column priority             integer not null default 0;
+
+create unique index download_queue_scheduled_url_idx on download_queue_scheduled (url);
+create index download_queue_scheduled_at_idx on download_queue_scheduled (scheduled_at);
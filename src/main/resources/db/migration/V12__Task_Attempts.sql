@@ -0,0 +1,6 @@
+alter table download_queue
+    add column attempts integer not null default 0,
+    add column not_before timestamp with time zone;
+
+drop index download_queue_unlocked_idx;
+create index download_queue_unlocked_idx on download_queue (type, priority desc, created_at) include (not_before) where locked_at is null;
@@ -0,0 +1,2 @@
+alter table board
+    add column pending_last_post_at timestamp with time zone;
@@ -0,0 +1,7 @@
+delete from download_queue queued
+    using download_queue duplicate
+    where queued.url = duplicate.url
+      and queued.id > duplicate.id;
+
+drop index download_queue_url_idx;
+create unique index download_queue_url_idx on download_queue (url);
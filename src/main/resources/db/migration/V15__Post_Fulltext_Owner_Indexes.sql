@@ -0,0 +1,2 @@
+create index post_fulltext_topic_id_idx on post_fulltext (topic_id);
+create index post_fulltext_author_id_idx on post_fulltext (author_id);
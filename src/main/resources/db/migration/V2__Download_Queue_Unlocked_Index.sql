@@ -0,0 +1 @@
+create index download_queue_unlocked_idx on download_queue (type, created_at) where locked_at is null;
@@ -0,0 +1,2 @@
+create index download_queue_url_idx on download_queue (url);
+create index download_queue_done_url_idx on download_queue_done (url, done_at);
@@ -0,0 +1,13 @@
+alter table asset
+    add column etag          text,
+    add column last_modified text,
+    add column content_hash  text;
+
+create table page_cache
+(
+    url           text primary key,
+    etag          text,
+    last_modified text,
+    content_hash  text,
+    fetched_at    timestamp with time zone not null default now()
+);
@@ -0,0 +1,4 @@
+alter table topic
+    add column reply_count      integer,
+    add column last_page_offset integer,
+    add column last_post_oid    bigint;
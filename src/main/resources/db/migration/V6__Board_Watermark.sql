@@ -0,0 +1,3 @@
+alter table board
+    add column last_post_at  timestamp with time zone,
+    add column indexed_until timestamp with time zone;
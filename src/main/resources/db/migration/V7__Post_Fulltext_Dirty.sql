@@ -0,0 +1,11 @@
+create table post_fulltext_dirty
+(
+    post_id   bigint primary key,
+    marked_at timestamp with time zone not null default now()
+);
+
+insert into post_fulltext_dirty (post_id)
+select p.id
+from post p
+         left join post_fulltext f on f.post_id = p.id
+where f.post_id is null;
@@ -0,0 +1,17 @@
+create table worker
+(
+    id           text primary key,
+    host         text                     not null,
+    started_at   timestamp with time zone not null default now(),
+    heartbeat_at timestamp with time zone not null default now()
+);
+
+alter table download_queue
+    add column locked_by text;
+
+create index download_queue_locked_by_idx on download_queue (locked_by) where locked_by is not null;
+
+-- Leases taken before workers were registered have no owner that could release them
+update download_queue
+set locked_at = null
+where locked_at is not null;
@@ -0,0 +1 @@
+create index download_queue_locked_at_idx on download_queue (locked_at) where locked_at is not null;